@@ -0,0 +1,66 @@
+package problem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import solver.BenchScenes;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading problem and solution files. Only the project scenes have
+ * solutions, so the generated ones are measured by loadProblem alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBench {
+	@Param({"input1", "input2", "input3"})
+	public String scene;
+
+	private String problem;
+	private String solution;
+	private ProblemSpec loaded;
+
+	@Setup(Level.Trial)
+	public void locateFiles() throws IOException {
+		problem = BenchScenes.problem(scene);
+		solution = BenchScenes.solution(scene);
+	}
+
+	/**
+	 * loadSolution appends to the path of the spec, so every call gets a
+	 * spec that holds only the problem
+	 */
+	@Setup(Level.Invocation)
+	public void loadProblemOnly() throws IOException {
+		loaded = new ProblemSpec();
+		loaded.loadProblem(problem);
+	}
+
+	@Benchmark
+	public ProblemSpec loadProblem() throws IOException {
+		ProblemSpec ps = new ProblemSpec();
+		ps.loadProblem(problem);
+		return ps;
+	}
+
+	@Benchmark
+	public ProblemSpec loadSolution() throws IOException {
+		loaded.loadSolution(solution);
+		return loaded;
+	}
+}
@@ -0,0 +1,50 @@
+package solver;
+
+import problem.ProblemSpec;
+import problem.SceneGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The scenes the benchmarks run on. "input1" to "input3" are the problem
+ * files of the project, read from the directory in the bench.dir system
+ * property (the working directory by default), and come with the solutions
+ * "output1" to "output3". "gen-N" is a scene of SceneGenerator with N
+ * moving boxes and N / 2 moving obstacles.
+ */
+public final class BenchScenes {
+    private static final long SEED = 1;
+
+    private BenchScenes() {
+    }
+
+    /** @return the path of the problem file of scene */
+    public static String problem(String scene) throws IOException {
+        if(scene.startsWith("gen-")) {
+            return generate(Integer.parseInt(scene.substring("gen-".length())));
+        }
+        return Paths.get(System.getProperty("bench.dir", "."), scene + ".txt").toString();
+    }
+
+    /** @return the path of the solution of one of the project scenes */
+    public static String solution(String scene) {
+        return Paths.get(System.getProperty("bench.dir", "."), scene.replace("input", "output") + ".txt").toString();
+    }
+
+    public static ProblemSpec load(String scene) throws IOException {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem(problem(scene));
+        return ps;
+    }
+
+    /** A solvable scene with some static clutter, the same for every run */
+    private static String generate(int boxes) throws IOException {
+        Path file = Files.createTempFile("bench-gen-" + boxes + "-", ".txt");
+        file.toFile().deleteOnExit();
+        new SceneGenerator(boxes, boxes / 2, 0.2, true).write(SEED, file.toString());
+        return file.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import problem.Box;
+import problem.MovingBox;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RoadmapForBox.collisionExist on the vertices of a grown roadmap, for whole
+ * states and for a single box pushed one primitive step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBench {
+    private static final int STATES = 1024;
+
+    @Param({"input1", "input2", "input3", "gen-8", "gen-32", "gen-256"})
+    public String scene;
+
+    private RoadmapForBox roadmap;
+    private Vertex[] states = new Vertex[STATES];
+    private int[] boxes = new int[STATES];
+    private MovingBox[] moves = new MovingBox[STATES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void growRoadmap() throws IOException {
+        roadmap = new RoadmapForBox(BenchScenes.load(scene), 1);
+        int failures = 0;
+        while(roadmap.map.size() < STATES && failures < 100) {
+            try {
+                roadmap.addNewVertex(roadmap.newVertex());
+            } catch(InsertFailedException e) {
+                failures++;
+            }
+        }
+        for(int i = 0; i < STATES; i++) {
+            // StoredTree rebuilds vertices on get, keep them as objects
+            Vertex v = roadmap.map.get(i % roadmap.map.size());
+            states[i] = new Vertex(v.getMovingBoxes(), v.getMovingObstacles());
+            boxes[i] = i % v.getMovingBoxes().size();
+            Box box = v.getMovingBoxes().get(boxes[i]);
+            Point2D pos = box.getPos();
+            double step = (i & 1) == 0 ? RoadmapForBox.PRIMITIVE : -RoadmapForBox.PRIMITIVE;
+            moves[i] = (i & 2) == 0
+                    ? new MovingBox(new Point2D.Double(pos.getX() + step, pos.getY()), box.getWidth())
+                    : new MovingBox(new Point2D.Double(pos.getX(), pos.getY() + step), box.getWidth());
+        }
+    }
+
+    @Benchmark
+    public boolean state() {
+        int i = next++ & (STATES - 1);
+        return roadmap.collisionExist(states[i]);
+    }
+
+    @Benchmark
+    public boolean boxMove() {
+        int i = next++ & (STATES - 1);
+        return roadmap.collisionExist(boxes[i], states[i], moves[i]);
+    }
+}
@@ -0,0 +1,96 @@
+package solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import problem.ProblemSpec;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampling, extending and the goal heuristic of RoadmapForBox. The sampler
+ * is private, it is measured through newVertex, which draws until a sample
+ * is free and not yet in the map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoadmapBench {
+    @Param({"input1", "input2", "input3", "gen-8", "gen-32", "gen-256"})
+    public String scene;
+
+    /** Vertices grown before measuring newVertex */
+    @Param({"2000"})
+    public int treeSize;
+
+    private ProblemSpec ps;
+    private RoadmapForBox grown;
+    private RoadmapForBox fresh;
+    private Vertex leaf;
+    private Vertex goal;
+    private Vertex sameGoal;
+    private boolean flip;
+
+    @Setup(Level.Trial)
+    public void loadScene() throws IOException {
+        ps = BenchScenes.load(scene);
+        grown = new RoadmapForBox(ps, 1);
+        int failures = 0;
+        while(grown.map.size() < treeSize && failures < 100) {
+            try {
+                grown.addNewVertex(grown.newVertex());
+            } catch(InsertFailedException e) {
+                failures++;
+            }
+        }
+        leaf = grown.map.get(grown.map.size() - 1);
+        goal = grown.goal;
+        sameGoal = new Vertex(goal.getMovingBoxes());
+    }
+
+    @Setup(Level.Iteration)
+    public void freshRoadmap() {
+        fresh = new RoadmapForBox(ps, 1);
+    }
+
+    @Benchmark
+    public Vertex newVertex() {
+        return grown.newVertex();
+    }
+
+    /** One sample and one extension, on a map that grows through the iteration */
+    @Benchmark
+    public boolean addNewVertex() {
+        try {
+            return fresh.addNewVertex(fresh.newVertex());
+        } catch(InsertFailedException e) {
+            return false;
+        }
+    }
+
+    /** The full sum over every box, the goal changes on every call so the cache never hits */
+    @Benchmark
+    public double heuristicFull() {
+        flip = !flip;
+        return leaf.heuristic(flip ? goal : sameGoal);
+    }
+
+    /** The value carried over from the parent */
+    @Benchmark
+    public double heuristicCached() {
+        return leaf.heuristic(goal);
+    }
+}
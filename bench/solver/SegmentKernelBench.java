@@ -0,0 +1,113 @@
+package solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import problem.ProblemSpec;
+import problem.StaticObstacle;
+import tester.Tester;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The robot against the static obstacles of a scene, as Tester.hasCollision
+ * checks it with Line2D and grown rectangles and with SegmentKernel, and the
+ * swept checks of SegmentKernel for a primitive step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentKernelBench {
+    private static final int CONFIGS = 1024;
+
+    @Param({"input1", "input3", "gen-32", "gen-256"})
+    public String scene;
+
+    private Tester tester;
+    private List<Rectangle2D> rects = new ArrayList<>();
+    private double[] bounds;
+    private double width;
+    private double[] x = new double[CONFIGS];
+    private double[] y = new double[CONFIGS];
+    private double[] angle = new double[CONFIGS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void loadScene() throws IOException {
+        ProblemSpec ps = BenchScenes.load(scene);
+        tester = new Tester(ps);
+        for(StaticObstacle obstacle : ps.getStaticObstacles()) {
+            rects.add(obstacle.getRect());
+        }
+        bounds = SegmentKernel.bounds(rects);
+        width = ps.getRobotWidth();
+        Random r = new Random(1);
+        for(int i = 0; i < CONFIGS; i++) {
+            x[i] = r.nextDouble();
+            y[i] = r.nextDouble();
+            angle[i] = r.nextDouble() * 2 * Math.PI;
+        }
+    }
+
+    @Benchmark
+    public boolean line2D() {
+        int i = next++ & (CONFIGS - 1);
+        double dx = Math.cos(angle[i]) * width * 0.5, dy = Math.sin(angle[i]) * width * 0.5;
+        Line2D line = new Line2D.Double(x[i] - dx, y[i] - dy, x[i] + dx, y[i] + dy);
+        for(Rectangle2D rect : rects) {
+            if(line.intersects(tester.grow(rect, -Tester.MAX_ERROR))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean kernel() {
+        int i = next++ & (CONFIGS - 1);
+        return SegmentKernel.configHits(bounds, rects.size(), -SegmentKernel.MAX_ERROR, x[i], y[i], angle[i], width);
+    }
+
+    @Benchmark
+    public boolean translation() {
+        int i = next++ & (CONFIGS - 1);
+        double dx = Math.cos(angle[i]) * width * 0.5, dy = Math.sin(angle[i]) * width * 0.5;
+        for(int k = 0; k < rects.size(); k++) {
+            if(SegmentKernel.translationHits(bounds, k, -SegmentKernel.MAX_ERROR, x[i] - dx, y[i] - dy,
+                    x[i] + dx, y[i] + dy, Tester.MAX_BASE_STEP, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean rotation() {
+        int i = next++ & (CONFIGS - 1);
+        for(int k = 0; k < rects.size(); k++) {
+            if(SegmentKernel.rotationHits(bounds, k, -SegmentKernel.MAX_ERROR, x[i], y[i], width,
+                    angle[i], angle[i] + Tester.MAX_BASE_STEP / width)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,74 @@
+package tester;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import problem.ProblemSpec;
+import solver.BenchScenes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The checks of Tester over the solutions of the project scenes. Tester
+ * reports every step on System.out, which is discarded while measuring so
+ * that the benchmark does not time the console.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TesterBench {
+    @Param({"input1", "input2", "input3"})
+    public String scene;
+
+    private Tester tester;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void loadSolution() throws IOException {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem(BenchScenes.problem(scene));
+        ps.loadSolution(BenchScenes.solution(scene));
+        tester = new Tester(ps);
+        out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreOut() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public boolean testCollision() {
+        return tester.testCollision();
+    }
+
+    @Benchmark
+    public boolean testPushedBox() {
+        return tester.testPushedBox();
+    }
+}
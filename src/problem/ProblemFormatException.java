@@ -0,0 +1,19 @@
+package problem;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a problem or solution text doesn't meet the assignment
+ * specifications. The message says which line is wrong.
+ */
+public class ProblemFormatException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	/** The status loadProblem(String) or loadSolution(String) exits with */
+	final int status;
+
+	ProblemFormatException(String message, int status) {
+		super(message);
+		this.status = status;
+	}
+}
@@ -5,6 +5,7 @@ import java.awt.geom.Point2D;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
@@ -95,6 +96,31 @@ public class ProblemSpec {
 	public void loadProblem(String filename) throws IOException {
 		problemLoaded = false;
 		BufferedReader input = new BufferedReader(new FileReader(filename));
+		try {
+			loadProblem(input);
+		} catch (ProblemFormatException e) {
+			System.out.print(e.getMessage());
+			System.exit(e.status);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Loads a problem in the format of a problem text file. Unlike
+	 * loadProblem(String) it never exits the JVM, malformed input is
+	 * reported as a ProblemFormatException.
+	 *
+	 * @param reader
+	 *            the problem text, left open.
+	 * @throws IOException
+	 *             if the text cannot be read or doesn't meet the assignment
+	 *             specifications.
+	 */
+	public void loadProblem(Reader reader) throws IOException {
+		problemLoaded = false;
+		BufferedReader input = reader instanceof BufferedReader
+				? (BufferedReader) reader : new BufferedReader(reader);
 		String line;
 		int lineNo = 0;
 		Scanner s;
@@ -162,18 +188,14 @@ public class ProblemSpec {
 			
 			problemLoaded = true;
 		} catch (InputMismatchException e) {
-			System.out.format("Invalid number format on input file - line %d: %s", lineNo,
-                    e.getMessage());
-			System.exit(1);
+			throw new ProblemFormatException(String.format(
+					"Invalid number format on input file - line %d: %s", lineNo, e.getMessage()), 1);
 		} catch (NoSuchElementException e) {
-            System.out.format("Not enough tokens on input file - line %d",
-                    lineNo);
-            System.exit(2);
+			throw new ProblemFormatException(String.format(
+					"Not enough tokens on input file - line %d", lineNo), 2);
 		} catch (NullPointerException e) {
-            System.out.format("Input file - line %d expected, but file ended.", lineNo);
-            System.exit(3);
-		} finally {
-			input.close();
+			throw new ProblemFormatException(String.format(
+					"Input file - line %d expected, but file ended.", lineNo), 3);
 		}
 	}
 
@@ -187,13 +209,41 @@ public class ProblemSpec {
 	 *             specifications.
 	 */
     public void loadSolution(String filename) throws IOException {
-        solutionLoaded = false;
         if (!problemLoaded) {
             System.out.println("Problem not loaded, exiting!");
             System.exit(4);
         }
 
         BufferedReader input = new BufferedReader(new FileReader(filename));
+        try {
+            loadSolution(input);
+        } catch (ProblemFormatException e) {
+            System.out.print(e.getMessage());
+            System.exit(e.status);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+	 * Loads a solution in the format of a solution text file. Unlike
+	 * loadSolution(String) it never exits the JVM, a missing problem or
+	 * malformed input is reported as a ProblemFormatException.
+	 *
+	 * @param reader
+	 *            the solution text, left open.
+	 * @throws IOException
+	 *             if the text cannot be read or doesn't meet the assignment
+	 *             specifications.
+	 */
+    public void loadSolution(Reader reader) throws IOException {
+        solutionLoaded = false;
+        if (!problemLoaded) {
+            throw new ProblemFormatException("Problem not loaded", 4);
+        }
+
+        BufferedReader input = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader);
         String line;
         int lineNo = 0;
         Scanner s;
@@ -230,18 +280,14 @@ public class ProblemSpec {
             }
             solutionLoaded = true;
         } catch (InputMismatchException e) {
-            System.out.format("Invalid number format on input file - line %d: %s", lineNo,
-                    e.getMessage());
-            System.exit(1);
+            throw new ProblemFormatException(String.format(
+                    "Invalid number format on input file - line %d: %s", lineNo, e.getMessage()), 1);
         } catch (NoSuchElementException e) {
-            System.out.format("Not enough tokens on input file - line %d",
-                    lineNo);
-            System.exit(2);
+            throw new ProblemFormatException(String.format(
+                    "Not enough tokens on input file - line %d", lineNo), 2);
         } catch (NullPointerException e) {
-            System.out.format("Input file - line %d expected, but file ended.", lineNo);
-            System.exit(3);
-        } finally {
-            input.close();
+            throw new ProblemFormatException(String.format(
+                    "Input file - line %d expected, but file ended.", lineNo), 3);
         }
     }
 
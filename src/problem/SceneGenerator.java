@@ -0,0 +1,354 @@
+package problem;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Writes random problem files in the format read by ProblemSpec.loadProblem,
+ * so that solvers and the tester can be run on scenes of any size. The same
+ * settings and seed always give the same file.
+ *
+ * Scenes are laid out on a grid of n by n square cells, n being the smallest
+ * that fits every object, and each cell holds at most one object: the robot,
+ * the start or the goal of a moving box, a moving obstacle or a static
+ * obstacle. The static density is the fraction of the cells left over by the
+ * moving objects that hold a static obstacle.
+ *
+ * A random scene puts every object in a cell of its own, anywhere in the
+ * cell, and need not be solvable. A solvable scene is built so that it is:
+ * even rows and the first column stay empty, so the robot can get to every
+ * free cell, and every box is one cell left of its goal in an odd row, with
+ * a free cell on its left where the robot stands to push it.
+ */
+public class SceneGenerator {
+	/** Cell contents while a solvable scene is packed */
+	private static final int STATIC = 0, OBSTACLE = 1, FREE = 2, BOX = 3;
+
+	private final int numBoxes;
+	private final int numObstacles;
+	private final double staticDensity;
+	private final boolean solvable;
+	/** Width of the robot and the boxes, 0 for 0.4 of a cell */
+	private double boxWidth = 0;
+	/** Widths of moving obstacles, 0 for 0.4 to 0.5 of a cell */
+	private double minObstacleWidth = 0;
+	private double maxObstacleWidth = 0;
+
+	/**
+	 * @param numBoxes
+	 *            the number of moving boxes.
+	 * @param numObstacles
+	 *            the number of moving obstacles.
+	 * @param staticDensity
+	 *            the fraction of free cells holding a static obstacle, in
+	 *            [0, 0.9].
+	 * @param solvable
+	 *            whether to build the scene so that it can be solved.
+	 */
+	public SceneGenerator(int numBoxes, int numObstacles, double staticDensity, boolean solvable) {
+		if (numBoxes < 0 || numObstacles < 0) {
+			throw new IllegalArgumentException("negative number of objects");
+		}
+		if (staticDensity < 0 || staticDensity > 0.9) {
+			throw new IllegalArgumentException("static density " + staticDensity + " not in [0, 0.9]");
+		}
+		this.numBoxes = numBoxes;
+		this.numObstacles = numObstacles;
+		this.staticDensity = staticDensity;
+		this.solvable = solvable;
+	}
+
+	/** Sets the width of the robot and the boxes, at most half a cell */
+	public void setBoxWidth(double width) {
+		boxWidth = width;
+	}
+
+	/** Sets the range moving obstacle widths are drawn from, at most half a cell */
+	public void setObstacleWidths(double min, double max) {
+		if (min > max) {
+			throw new IllegalArgumentException("min width above max width");
+		}
+		minObstacleWidth = min;
+		maxObstacleWidth = max;
+	}
+
+	/**
+	 * Writes a scene to a file.
+	 *
+	 * @param seed
+	 *            the seed of the scene.
+	 * @param filename
+	 *            the path of the text file to write.
+	 */
+	public void write(long seed, String filename) throws IOException {
+		try (Writer out = Files.newBufferedWriter(Paths.get(filename))) {
+			out.write(generate(seed));
+		}
+	}
+
+	/**
+	 * Returns the text of a scene.
+	 *
+	 * @param seed
+	 *            the seed of the scene.
+	 */
+	public String generate(long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		return solvable ? solvableScene(random) : randomScene(random);
+	}
+
+	private String randomScene(SplittableRandom random) {
+		int moving = 2 * numBoxes + numObstacles;
+		// the cells besides the robot must hold the moving objects and their share of static ones
+		int n = 2;
+		while (n * n - 1 < Math.ceil(moving / (1 - staticDensity))) {
+			n++;
+		}
+		int cells = n * n;
+		int statics = (int) Math.round(staticDensity * (cells - 1 - moving));
+
+		int[] order = new int[cells];
+		for (int i = 0; i < cells; i++) {
+			order[i] = i;
+		}
+		shuffle(order, random);
+
+		Scene scene = new Scene(n);
+		int next = 0;
+		scene.robot(order[next++], random);
+		for (int i = 0; i < numBoxes; i++) {
+			scene.box(order[next++], order[next++], random);
+		}
+		for (int i = 0; i < numObstacles; i++) {
+			scene.obstacle(order[next++], random);
+		}
+		for (int i = 0; i < statics; i++) {
+			scene.staticObstacle(order[next++], random);
+		}
+		return scene.toString();
+	}
+
+	private String solvableScene(SplittableRandom random) {
+		int moving = 3 * numBoxes + numObstacles;
+		int n = 4;
+		while (true) {
+			// odd rows without their first cell
+			int usable = (n / 2) * (n - 1);
+			if (usable >= Math.ceil(moving / (1 - staticDensity))) {
+				int statics = (int) Math.round(staticDensity * (usable - moving));
+				int[] tokens = new int[numBoxes + numObstacles + usable - moving];
+				int t = 0;
+				for (int i = 0; i < numBoxes; i++) {
+					tokens[t++] = BOX;
+				}
+				for (int i = 0; i < numObstacles; i++) {
+					tokens[t++] = OBSTACLE;
+				}
+				for (int i = 0; i < usable - moving; i++) {
+					tokens[t++] = i < statics ? STATIC : FREE;
+				}
+				shuffle(tokens, random);
+				Scene scene = pack(n, tokens, random);
+				if (scene != null) {
+					return scene.toString();
+				}
+			}
+			n++;
+		}
+	}
+
+	/**
+	 * Lays tokens out along the odd rows of an n by n grid, a box takes
+	 * three cells: the free one the robot pushes from, its start and its goal
+	 * @return the scene, or null if the tokens do not fit
+	 */
+	private Scene pack(int n, int[] tokens, SplittableRandom random) {
+		Scene scene = new Scene(n);
+		scene.robot(0, random);
+		int row = 1;
+		int col = 1;
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokens[i] == BOX && col + 3 > n) {
+				// fill the end of the row with the next token of a single cell
+				for (int j = i + 1; j < tokens.length; j++) {
+					if (tokens[j] != BOX) {
+						int swap = tokens[i];
+						tokens[i] = tokens[j];
+						tokens[j] = swap;
+						break;
+					}
+				}
+			}
+			int length = tokens[i] == BOX ? 3 : 1;
+			if (col + length > n) {
+				row += 2;
+				col = 1;
+			}
+			if (row >= n) {
+				return null;
+			}
+			int cell = row * n + col;
+			switch (tokens[i]) {
+			case BOX:
+				scene.pushableBox(cell + 1);
+				break;
+			case OBSTACLE:
+				scene.obstacle(cell, random);
+				break;
+			case STATIC:
+				scene.staticObstacle(cell, random);
+				break;
+			default:
+				break;
+			}
+			col += length;
+		}
+		return scene;
+	}
+
+	private static void shuffle(int[] a, SplittableRandom random) {
+		for (int i = a.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = a[i];
+			a[i] = a[j];
+			a[j] = swap;
+		}
+	}
+
+	/** The lines of a scene on a grid, cell i is in row i / n and column i % n */
+	private class Scene {
+		private final int n;
+		private final double cell;
+		private final double width;
+		private final double minObstacle;
+		private final double maxObstacle;
+		private String robot;
+		private final List<String> boxes = new ArrayList<String>();
+		private final List<String> obstacles = new ArrayList<String>();
+		private final List<String> statics = new ArrayList<String>();
+
+		Scene(int n) {
+			this.n = n;
+			cell = 1.0 / n;
+			width = boxWidth > 0 ? boxWidth : 0.4 * cell;
+			minObstacle = minObstacleWidth > 0 ? minObstacleWidth : 0.4 * cell;
+			maxObstacle = maxObstacleWidth > 0 ? maxObstacleWidth : 0.5 * cell;
+			if (width > cell / 2 || maxObstacle > cell / 2) {
+				throw new IllegalArgumentException(String.format(Locale.ROOT,
+						"objects wider than half a cell of %.6f", cell));
+			}
+		}
+
+		private double x(int c) {
+			return (c % n) * cell;
+		}
+
+		private double y(int c) {
+			return (c / n) * cell;
+		}
+
+		/** @return the centre of an object of width w anywhere in [low, low + cell) */
+		private double centre(double low, double w, SplittableRandom random) {
+			return low + w / 2 + random.nextDouble() * (cell - w);
+		}
+
+		void robot(int c, SplittableRandom random) {
+			robot = format(width, centre(x(c), width, random), centre(y(c), width, random), 0.0);
+		}
+
+		void box(int start, int goal, SplittableRandom random) {
+			boxes.add(format(centre(x(start), width, random), centre(y(start), width, random),
+					centre(x(goal), width, random), centre(y(goal), width, random)));
+		}
+
+		/** A box in cell c with its goal in the next cell, at the same height */
+		void pushableBox(int c) {
+			double y = y(c) + cell / 2;
+			boxes.add(format(x(c) + cell / 2, y, x(c) + 1.5 * cell, y));
+		}
+
+		void obstacle(int c, SplittableRandom random) {
+			double w = minObstacle + random.nextDouble() * (maxObstacle - minObstacle);
+			obstacles.add(format(centre(x(c), w, random), centre(y(c), w, random), w));
+		}
+
+		/** A rectangle of half a cell to a whole cell on each side */
+		void staticObstacle(int c, SplittableRandom random) {
+			double w = cell * (0.5 + 0.5 * random.nextDouble());
+			double h = cell * (0.5 + 0.5 * random.nextDouble());
+			double x = x(c) + random.nextDouble() * (cell - w);
+			double y = y(c) + random.nextDouble() * (cell - h);
+			statics.add(format(x, y, x + w, y + h));
+		}
+
+		private String format(double... values) {
+			StringBuilder line = new StringBuilder();
+			for (double value : values) {
+				if (line.length() > 0) {
+					line.append(' ');
+				}
+				line.append(String.format(Locale.ROOT, "%.6f", value));
+			}
+			return line.toString();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder(robot).append('\n');
+			text.append(boxes.size()).append(' ').append(obstacles.size()).append(' ')
+					.append(statics.size()).append('\n');
+			for (List<String> lines : Arrays.asList(boxes, obstacles, statics)) {
+				for (String line : lines) {
+					text.append(line).append('\n');
+				}
+			}
+			return text.toString();
+		}
+	}
+
+	/**
+	 * Writes a scene.
+	 *
+	 * @param args
+	 *            boxes obstacles staticDensity seed outputfilename, and
+	 *            anywhere --solvable to build a solvable scene, --width=w for
+	 *            the robot and boxes and --obstacle-widths=min:max
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean solvable = false;
+		double width = 0;
+		double minObstacle = 0;
+		double maxObstacle = 0;
+		List<String> positional = new ArrayList<String>();
+		for (String arg : args) {
+			if (arg.equals("--solvable")) {
+				solvable = true;
+			} else if (arg.startsWith("--width=")) {
+				width = Double.parseDouble(arg.substring("--width=".length()));
+			} else if (arg.startsWith("--obstacle-widths=")) {
+				String[] range = arg.substring("--obstacle-widths=".length()).split(":");
+				minObstacle = Double.parseDouble(range[0]);
+				maxObstacle = Double.parseDouble(range[range.length - 1]);
+			} else {
+				positional.add(arg);
+			}
+		}
+		if (positional.size() != 5) {
+			System.out.println("Usage: SceneGenerator boxes obstacles staticDensity seed outputfilename"
+					+ " [--solvable] [--width=w] [--obstacle-widths=min:max]");
+			return;
+		}
+		SceneGenerator generator = new SceneGenerator(Integer.parseInt(positional.get(0)),
+				Integer.parseInt(positional.get(1)), Double.parseDouble(positional.get(2)), solvable);
+		generator.setBoxWidth(width);
+		generator.setObstacleWidths(minObstacle, maxObstacle);
+		generator.write(Long.parseLong(positional.get(3)), positional.get(4));
+	}
+}
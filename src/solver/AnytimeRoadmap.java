@@ -0,0 +1,220 @@
+package solver;
+
+import problem.MovingBox;
+import problem.MovingObstacle;
+import problem.ProblemSpec;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RRT* over box configurations. The tree keeps growing after the goal has
+ * been reached and every new vertex is hung under the cheapest neighbour it
+ * is a single move away from, then offered as a cheaper parent to those
+ * neighbours. The cost of a vertex is the distance the objects travelled on
+ * the way from the root, see Vertex.getCost.
+ *
+ * The best solution so far is published as a copy of its chain that later
+ * rewiring does not touch, so getSolution may be called from any thread
+ * while the planner runs.
+ */
+public class AnytimeRoadmap extends RoadmapForBox {
+    /** Scales the radius in which new vertices are connected and rewired */
+    static final double REWIRE_GAMMA = 1.0;
+    private static final double COST_TOLERANCE = 1e-9;
+
+    private final Map<Vertex, List<Vertex>> children = new IdentityHashMap<>();
+    private final List<Vertex> goalVertices = new ArrayList<>();
+    private final List<Vertex> neighbours = new ArrayList<>();
+    private volatile Vertex best;
+    private volatile double bestCost = Double.POSITIVE_INFINITY;
+
+    public AnytimeRoadmap(ProblemSpec ps) {
+        this(ps, Calendar.getInstance().getTimeInMillis());
+    }
+
+    public AnytimeRoadmap(ProblemSpec ps, long seed) {
+        this(ps, seed, SamplingStrategy.uniform);
+    }
+
+    public AnytimeRoadmap(ProblemSpec ps, long seed, SamplingStrategy strategy) {
+        this(ps, seed, strategy, RoadmapCache.inMemory(ps));
+    }
+
+    public AnytimeRoadmap(ProblemSpec ps, long seed, SamplingStrategy strategy, RoadmapCache cache) {
+        // rewiring changes the parent and cost of vertices in place, so
+        // they are retained rather than rebuilt from the store
+        super(ps, seed, strategy, cache, false, true);
+    }
+
+    /**
+     * Grow and rewire the tree until System.nanoTime() reaches deadline
+     * @return the best solution found, or null if the goal was not reached
+     */
+    public Vertex solveUntil(long deadline) {
+        try {
+            while(System.nanoTime() - deadline < 0) {
+                addNewVertex(newVertex());
+            }
+        } catch (InsertFailedException e) {
+            // the sampler gave up, keep what was found
+        }
+        return best;
+    }
+
+    /** Keep improving the solution until token asks to stop */
+    @Override
+    public SolveResult grow(CancellationToken token) {
+        return grow(token, true);
+    }
+
+    /**
+     * @return true once some solution exists, unlike RoadmapForBox the
+     * planner can keep going to improve it
+     */
+    @Override
+    public boolean addNewVertex(Vertex v) throws InsertFailedException {
+        if(v == null) {
+            throw insertFailed();
+        }
+        Vertex near = findNearest(v);
+        if(near == null) {
+            throw insertFailed();
+        }
+        Vertex newNode = findNextConfigOn(near, v);
+        if(newNode == null || isVisitedExtension(newNode)) {
+            return best != null;
+        }
+
+        neighbours.clear();
+        findWithin(newNode, radius(), neighbours);
+        chooseParent(newNode);
+        addToMap(newNode);
+        rewire(newNode);
+
+        if(newNode.heuristic(goal) < CLOSE_HEURISTIC && tryConnectGoal(newNode)) {
+            goalVertices.add(solution);
+        }
+        updateBest();
+        return best != null;
+    }
+
+    @Override
+    void addToMap(Vertex v) {
+        super.addToMap(v);
+        if(v.getParent() != null) {
+            childrenOf(v.getParent()).add(v);
+        }
+    }
+
+    /** The RRT* connection radius, shrinking as the tree grows */
+    private double radius() {
+        int n = size() + 1;
+        int d = Math.max(1, map.get(0).dimension());
+        return Math.min(MAX_EDGE_LENGTH, REWIRE_GAMMA * Math.pow(Math.log(n) / n, 1.0 / d));
+    }
+
+    /** Hang v under the cheapest neighbour that reaches it in one free move */
+    private void chooseParent(Vertex v) {
+        for(Vertex nb : neighbours) {
+            if(nb == v.getParent()) continue;
+            int moved = PathShortcutter.movedCoordinate(nb, v);
+            if(moved < 0) continue;
+            double cost = nb.getCost() + Math.abs(nb.coordinate(moved) - v.coordinate(moved));
+            if(cost < v.getCost() && isFree(nb, v, moved)) {
+                v.rewire(nb, logOf(nb, v, moved));
+                v.setCost(cost);
+            }
+        }
+    }
+
+    /** Hang every neighbour that v reaches more cheaply under v */
+    private void rewire(Vertex v) {
+        for(Vertex nb : neighbours) {
+            if(nb == v.getParent() || nb.getParent() == null) continue;
+            int moved = PathShortcutter.movedCoordinate(v, nb);
+            if(moved < 0) continue;
+            double cost = v.getCost() + Math.abs(v.coordinate(moved) - nb.coordinate(moved));
+            if(cost < nb.getCost() && isFree(v, nb, moved)) {
+                childrenOf(nb.getParent()).remove(nb);
+                nb.rewire(v, logOf(v, nb, moved));
+                childrenOf(v).add(nb);
+                propagate(nb, cost - nb.getCost());
+            }
+        }
+    }
+
+    /** Shift the cost of v and everything below it by delta */
+    private void propagate(Vertex v, double delta) {
+        List<Vertex> stack = new ArrayList<>();
+        stack.add(v);
+        while(!stack.isEmpty()) {
+            Vertex curr = stack.remove(stack.size() - 1);
+            curr.setCost(curr.getCost() + delta);
+            List<Vertex> below = children.get(curr);
+            if(below != null) {
+                stack.addAll(below);
+            }
+        }
+    }
+
+    /** Publish a detached copy of the cheapest goal vertex if it improved */
+    private void updateBest() {
+        Vertex cheapest = null;
+        for(Vertex g : goalVertices) {
+            if(cheapest == null || g.getCost() < cheapest.getCost()) {
+                cheapest = g;
+            }
+        }
+        // rewiring shifts costs by sums of differences, ignore rounding
+        if(cheapest != null && cheapest.getCost() < bestCost - COST_TOLERANCE) {
+            bestCost = cheapest.getCost();
+            best = PathShortcutter.relink(cheapest.pathFromRoot());
+        }
+    }
+
+    /** @return true if moving the object of coordinate moved from a to b is collision free */
+    private boolean isFree(Vertex a, Vertex b, int moved) {
+        int i = moved >> 1;
+        int numBoxes = a.getMovingBoxes().size();
+        if(i < numBoxes) {
+            return !collisionExist(i, a, (MovingBox) b.getMovingBoxes().get(i));
+        } else {
+            return !collisionExist(i - numBoxes, a,
+                    (MovingObstacle) b.getMovingObstacles().get(i - numBoxes));
+        }
+    }
+
+    private static ChangeLog logOf(Vertex from, Vertex to, int moved) {
+        int i = moved >> 1;
+        int numBoxes = from.getMovingBoxes().size();
+        boolean boxType = i < numBoxes;
+        int index = boxType ? i : i - numBoxes;
+        return new ChangeLog(-1, boxType, index, (moved & 1) == 0,
+                (boxType ? from.getMovingBoxes() : from.getMovingObstacles()).get(index),
+                to.coordinate(moved));
+    }
+
+    private List<Vertex> childrenOf(Vertex v) {
+        List<Vertex> list = children.get(v);
+        if(list == null) {
+            list = new ArrayList<>();
+            children.put(v, list);
+        }
+        return list;
+    }
+
+    /** @return the best solution so far, safe to read while the planner runs */
+    @Override
+    public Vertex getSolution() {
+        return best;
+    }
+
+    /** @return the cost of the best solution so far, infinite if there is none */
+    public double getBestCost() {
+        return bestCost;
+    }
+}
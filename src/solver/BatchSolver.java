@@ -0,0 +1,388 @@
+package solver;
+
+import problem.ProblemFormatException;
+import problem.ProblemSpec;
+import tester.Tester;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Solves many problem files without a display. Problems run concurrently on
+ * a pool of a fixed number of threads, each with one planner that searches
+ * until it reaches the goal or its time budget runs out. The budget also
+ * covers shortcutting and planning the robot, but not testing, which takes
+ * time linear in the length of the solution. Every solution is written to
+ * the output directory as name.solution.txt for a problem file name.txt,
+ * read back and checked with the tests of Tester.
+ */
+public class BatchSolver {
+
+    /** How a problem ended */
+    public enum Status {
+        solved,      // solution written
+        timeout,     // the search ran out of time
+        failed,      // the planner could not grow its tree
+        noRobotPath, // the boxes were solved but the robot cannot push them
+        error        // the problem could not be read or the solution written
+    }
+
+    /** One row of the summary */
+    public static class Report {
+        public final String problem;
+        public final Status status;
+        /** From reading the problem to writing the solution, testing excluded */
+        public final long nanos;
+        public final int treeSize;
+        /** Configurations in the solution, -1 without one */
+        public final long steps;
+        /** Whether the written solution passed Tester, false without one */
+        public final boolean passed;
+        /** Why the problem was not solved, or the Tester check that failed */
+        public final String message;
+
+        Report(String problem, Status status, long nanos, int treeSize, long steps, boolean passed,
+               String message) {
+            this.problem = problem;
+            this.status = status;
+            this.nanos = nanos;
+            this.treeSize = treeSize;
+            this.steps = steps;
+            this.passed = passed;
+            this.message = message;
+        }
+
+        public String toString() {
+            return String.format("%-28s %-11s %10.1f %8d %10s  %-4s  %s",
+                    problem, status, nanos / 1e6, treeSize, steps < 0 ? "-" : Long.toString(steps),
+                    status != Status.solved ? "-" : passed ? "pass" : "fail", message == null ? "" : message);
+        }
+    }
+
+    /** Replaces .txt in the name of a problem file to name its solution */
+    static final String SOLUTION_SUFFIX = ".solution.txt";
+
+    private final int threads;
+    private final long budgetNanos;
+    private final Path outDir;
+    private final long baseSeed;
+    private final Planner planner;
+    private final SamplingStrategy strategy;
+    private final boolean offHeap;
+
+    /**
+     * @param threads the number of problems solved at the same time
+     * @param budget the time the search of one problem may take
+     * @param outDir the directory solutions are written to
+     * @param baseSeed the seeds of the problems are derived from this one
+     * in the order they are given
+     */
+    public BatchSolver(int threads, long budget, TimeUnit unit, Path outDir, long baseSeed,
+                       SamplingStrategy strategy, boolean offHeap) {
+        this(threads, budget, unit, outDir, baseSeed, Planner.rrt, strategy, offHeap);
+    }
+
+    /**
+     * @param planner the roadmap every problem is searched with, an anytime
+     * roadmap improves its solution for half the budget and leaves the rest
+     * for shortcutting and the robot. A box solution the robot cannot
+     * follow is searched again with another seed while the budget lasts.
+     */
+    public BatchSolver(int threads, long budget, TimeUnit unit, Path outDir, long baseSeed, Planner planner,
+                       SamplingStrategy strategy, boolean offHeap) {
+        this.threads = threads;
+        this.budgetNanos = unit.toNanos(budget);
+        this.outDir = outDir;
+        this.baseSeed = baseSeed;
+        this.planner = planner;
+        this.strategy = strategy;
+        this.offHeap = offHeap;
+    }
+
+    /** @return a report for every problem, in the order of problems */
+    public List<Report> solveAll(List<Path> problems) throws InterruptedException {
+        SplittableRandom seeds = new SplittableRandom(baseSeed);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Future<Report>> futures = new ArrayList<>();
+            Set<String> names = new HashSet<>();
+            for(Path problem : problems) {
+                final long seed = seeds.nextLong();
+                final Path out = outDir.resolve(solutionName(problem, names));
+                futures.add(pool.submit(() -> solve(problem, out, seed)));
+            }
+            List<Report> reports = new ArrayList<>();
+            for(int i = 0; i < futures.size(); i++) {
+                try {
+                    reports.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // an Error such as running out of memory, the other problems go on
+                    reports.add(new Report(problems.get(i).getFileName().toString(), Status.error,
+                            0, 0, -1, false, String.valueOf(e.getCause())));
+                }
+            }
+            return reports;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param used the names given so far, problems of the same name from
+     * different directories are numbered so their solutions stay apart
+     * @return the file name of the solution of problem
+     */
+    static String solutionName(Path problem, Set<String> used) {
+        String name = problem.getFileName().toString();
+        if(name.endsWith(".txt")) {
+            name = name.substring(0, name.length() - ".txt".length());
+        }
+        String unique = name;
+        for(int i = 2; !used.add(unique); i++) {
+            unique = name + "-" + i;
+        }
+        return unique + SOLUTION_SUFFIX;
+    }
+
+    /**
+     * Solve one problem and write its solution to out, no exception other
+     * than an Error leaves this method
+     */
+    Report solve(Path problem, Path out, long seed) {
+        String name = problem.getFileName().toString();
+        long start = System.nanoTime();
+        CancellationToken token = new CancellationToken(Duration.ofNanos(budgetNanos));
+        ProblemSpec ps = new ProblemSpec();
+        try(Reader reader = Files.newBufferedReader(problem)) {
+            ps.loadProblem(reader);
+        } catch (IOException e) {
+            return new Report(name, Status.error, System.nanoTime() - start, 0, -1, false, e.getMessage());
+        }
+
+        RoadmapCache cache = RoadmapCache.inMemory(ps);
+        RobotPlanner robot = new RobotPlanner(ps, cache);
+        SplittableRandom retries = new SplittableRandom(seed);
+        long attempt = seed;
+        Roadmap rm = null;
+        try {
+            while(true) {
+                rm = planner.create(ps, attempt, strategy, cache, offHeap);
+                long left = Math.max(0, budgetNanos - (System.nanoTime() - start));
+                SolveResult result = rm.grow(planner == Planner.anytime
+                        ? new CancellationToken(Duration.ofNanos(left / 2)) : token);
+                if(!result.solved()) {
+                    Status status = result.status == SolveResult.Status.exhausted ? Status.failed : Status.timeout;
+                    return new Report(name, status, System.nanoTime() - start, rm.size(), -1, false, null);
+                }
+
+                // the lattice has no collision queries of its own
+                RoadmapForBox geometry = rm instanceof RoadmapForBox ? (RoadmapForBox) rm
+                        : new RoadmapForBox(ps, attempt, strategy, cache, offHeap);
+                Vertex solution = new PathShortcutter(geometry, attempt).shorten(rm.getSolution(), token);
+                List<Waypoint> path;
+                try {
+                    path = robot.plan(solution, token);
+                } catch (RobotPathNotFoundException e) {
+                    // the roadmap does not know the robot, another seed
+                    // finds other moves while the lattice finds the same
+                    if(planner == Planner.lattice || token.stopRequested()) {
+                        throw e;
+                    }
+                    attempt = retries.nextLong();
+                    continue;
+                }
+                if(path == null) {
+                    return new Report(name, Status.timeout, System.nanoTime() - start, rm.size(), -1, false,
+                            "while planning the robot");
+                }
+                long steps = write(ps, path, out);
+                long nanos = System.nanoTime() - start;
+                String failed = test(ps, out);
+                return new Report(name, Status.solved, nanos, rm.size(), steps, failed == null, failed);
+            }
+        } catch (RobotPathNotFoundException e) {
+            return new Report(name, Status.noRobotPath, System.nanoTime() - start, rm.size(), -1, false,
+                    e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            return new Report(name, Status.error, System.nanoTime() - start, rm == null ? 0 : rm.size(), -1,
+                    false, String.valueOf(e));
+        }
+    }
+
+    /** @return the number of configurations written */
+    private static long write(ProblemSpec ps, List<Waypoint> path, Path file) throws IOException {
+        StepInterpolator steps = new StepInterpolator(ps, path);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            new SolutionWriter(channel).write(steps);
+        }
+        return steps.size();
+    }
+
+    /**
+     * Read the solution back into ps and run the tests of
+     * Tester.testSolution, which only prints its verdict, then check that
+     * every box reached its goal
+     * @return null if the solution passed, else the name of the first
+     * check that failed
+     */
+    private static String test(ProblemSpec ps, Path solution) throws IOException {
+        try(Reader reader = Files.newBufferedReader(solution)) {
+            ps.loadSolution(reader);
+        } catch (ProblemFormatException e) {
+            return "unreadable: " + e.getMessage();
+        }
+        Tester tester = new Tester(ps);
+        if(!tester.testInitialFirst()) {
+            return "testInitialFirst";
+        }
+        if(!tester.testStepSize()) {
+            return "testStepSize";
+        }
+        if(!tester.testCollision()) {
+            return "testCollision";
+        }
+        if(!tester.testPushedBox()) {
+            return "testPushedBox";
+        }
+        if(tester.countGoals() != ps.getMovingBoxes().size()) {
+            return "countGoals";
+        }
+        return null;
+    }
+
+    /** Print reports as a table, with a line of totals */
+    public static void printTable(List<Report> reports, PrintStream out) {
+        out.println(String.format("%-28s %-11s %10s %8s %10s  %-4s  %s",
+                "problem", "status", "ms", "tree", "steps", "test", "message"));
+        int solved = 0;
+        int passed = 0;
+        long nanos = 0;
+        for(Report report : reports) {
+            out.println(report);
+            if(report.status == Status.solved) {
+                solved++;
+                if(report.passed) {
+                    passed++;
+                }
+            }
+            nanos += report.nanos;
+        }
+        out.println(String.format("%d problems, %d solved, %d passed, %.1f s solving",
+                reports.size(), solved, passed, nanos / 1e9));
+    }
+
+    /**
+     * Solve every problem file given, and every .txt file in the directories
+     * given, then print the summary table.
+     * @param args problem files or directories, and anywhere
+     * --threads=n for the size of the pool (the number of processors by default),
+     * --timeout=seconds for the search budget of each problem (60 by default),
+     * --out=directory for the solutions (solutions by default, not a
+     * directory of problems),
+     * --planner=rrt|bidi|anytime|lattice for the roadmap (rrt by default),
+     * --seed=n, --sampler=uniform|halton|goal and --offheap as in ParallelSolver
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        double timeout = 60;
+        Path outDir = Paths.get("solutions");
+        long seed = System.nanoTime();
+        Planner planner = Planner.rrt;
+        SamplingStrategy strategy = SamplingStrategy.uniform;
+        boolean offHeap = false;
+        List<Path> problems = new ArrayList<>();
+        for(String arg : args) {
+            if(arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if(arg.startsWith("--timeout=")) {
+                timeout = Double.parseDouble(arg.substring("--timeout=".length()));
+            } else if(arg.startsWith("--out=")) {
+                outDir = Paths.get(arg.substring("--out=".length()));
+            } else if(arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if(arg.startsWith("--planner=")) {
+                planner = Planner.valueOf(arg.substring("--planner=".length()));
+            } else if(arg.startsWith("--sampler=")) {
+                strategy = SamplingStrategy.valueOf(arg.substring("--sampler=".length()));
+            } else if(arg.equals("--offheap")) {
+                offHeap = true;
+            } else {
+                Path path = Paths.get(arg);
+                if(Files.isDirectory(path)) {
+                    try(Stream<Path> files = Files.list(path)) {
+                        problems.addAll(files.filter(f -> f.toString().endsWith(".txt")
+                                && !f.toString().endsWith(SOLUTION_SUFFIX) && Files.isRegularFile(f))
+                                .sorted().collect(Collectors.toList()));
+                    } catch (IOException e) {
+                        System.out.println("Cannot list " + path + ": " + e.getMessage());
+                        return;
+                    }
+                } else {
+                    problems.add(path);
+                }
+            }
+        }
+        if(problems.isEmpty()) {
+            System.out.println("No problem files given");
+            return;
+        }
+        try {
+            Files.createDirectories(outDir);
+        } catch (IOException e) {
+            System.out.println("Cannot create " + outDir + ": " + e.getMessage());
+            return;
+        }
+        for(Path problem : problems) {
+            Path dir = problem.toAbsolutePath().getParent();
+            try {
+                if(Files.isDirectory(dir) && Files.isSameFile(dir, outDir)) {
+                    System.out.println("Solutions would be written among the problems in " + dir
+                            + ", choose another --out");
+                    return;
+                }
+            } catch (IOException e) {
+                // the problem is reported as an error when it cannot be read
+            }
+        }
+
+        // the planners and Tester report on System.out, keep it for the table
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        List<Report> reports;
+        try {
+            reports = new BatchSolver(threads, (long) (timeout * 1000), TimeUnit.MILLISECONDS, outDir, seed,
+                    planner, strategy, offHeap).solveAll(problems);
+        } finally {
+            System.setOut(out);
+        }
+        printTable(reports, out);
+    }
+}
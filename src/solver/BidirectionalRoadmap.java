@@ -0,0 +1,160 @@
+package solver;
+
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+import problem.ProblemSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RRT-Connect over box configurations. One tree grows from the initial
+ * configuration (the map of RoadmapForBox) and one from the goal, where the
+ * boxes are at their goals and the moving obstacles where they start.
+ *
+ * Every call to addNewVertex extends one tree towards its sample and then
+ * pulls the other tree towards the new vertex, one single move at a time,
+ * until it gets stuck or the two meet. The trees take turns.
+ */
+public class BidirectionalRoadmap extends RoadmapForBox {
+
+    private StoredTree goalTree;
+    private KdTree goalIndex;
+    private boolean extendGoal;
+
+    public BidirectionalRoadmap(ProblemSpec ps) {
+        super(ps);
+        initGoalTree(ps);
+    }
+
+    public BidirectionalRoadmap(ProblemSpec ps, long seed) {
+        super(ps, seed);
+        initGoalTree(ps);
+    }
+
+    public BidirectionalRoadmap(ProblemSpec ps, long seed, SamplingStrategy strategy) {
+        super(ps, seed, strategy);
+        initGoalTree(ps);
+    }
+
+    public BidirectionalRoadmap(ProblemSpec ps, long seed, SamplingStrategy strategy, RoadmapCache cache) {
+        super(ps, seed, strategy, cache);
+        initGoalTree(ps);
+    }
+
+    /** @param offHeap keep both trees in direct buffers outside the heap */
+    public BidirectionalRoadmap(ProblemSpec ps, long seed, SamplingStrategy strategy, RoadmapCache cache,
+                                boolean offHeap) {
+        super(ps, seed, strategy, cache, offHeap);
+        initGoalTree(ps);
+    }
+
+    private void initGoalTree(ProblemSpec ps) {
+        Vertex goalRoot = new Vertex(goal.getMovingBoxes(), ps.getMovingObstacles());
+        goalTree = newTree(goalRoot.dimension(), false);
+        goalIndex = new KdTree(goalTree);
+        // a goal that collides with the obstacles where they start cannot
+        // root a tree, fall back to growing from the start only
+        if(!collisionExist(goalRoot)) {
+            addToTree(true, goalRoot);
+        }
+    }
+
+    @Override
+    public Vertex newVertex() {
+        return newVertex(extendGoal ? goalTree : map);
+    }
+
+    @Override
+    public boolean addNewVertex(Vertex v) throws InsertFailedException {
+        if(goalTree.isEmpty()) {
+            return super.addNewVertex(v);
+        }
+        if(v == null) {
+            throw insertFailed();
+        }
+        boolean fromGoal = extendGoal;
+        extendGoal = !extendGoal;
+
+        Vertex near = nearest(fromGoal, v);
+        Vertex newNode = findNextConfigOn(near, v);
+        if(newNode == null || (!fromGoal && isVisitedExtension(newNode))) {
+            return false;
+        }
+        addToTree(fromGoal, newNode);
+
+        // pull the other tree towards the new vertex
+        Vertex curr = nearest(!fromGoal, newNode);
+        double dist = curr.distanceTo(newNode);
+        while(dist > 0 && !token.stopRequested()) {
+            Vertex next = findNextConfigOn(curr, newNode);
+            if(next == null || next.distanceTo(newNode) >= dist) {
+                break;
+            }
+            addToTree(!fromGoal, next);
+            curr = next;
+            dist = next.distanceTo(newNode);
+        }
+
+        // moves below PRIMITIVE are never sampled, close the gap directly
+        List<Vertex> bridge = connectDirect(curr, newNode);
+        if(bridge == null) {
+            return false;
+        }
+        Vertex met = bridge.isEmpty() ? curr : bridge.get(bridge.size() - 1);
+        if(fromGoal) {
+            // curr is in the start tree, the bridge extends it to newNode
+            for(Vertex vertex : bridge) {
+                addToMap(vertex);
+            }
+            splice(met, newNode);
+        } else {
+            // curr is in the goal tree, the bridge leads from it to newNode
+            splice(newNode, met);
+        }
+        return true;
+    }
+
+    /**
+     * Join the two trees at a configuration both of them reached. The moves
+     * from goalEnd back to the goal root are replayed in reverse after
+     * startEnd, which yields one parent chain from the initial configuration
+     * to the goal.
+     */
+    private void splice(Vertex startEnd, Vertex goalEnd) {
+        Vertex curr = startEnd;
+        for(Vertex g = goalEnd; g.getParent() != null; g = g.getParent()) {
+            ChangeLog log = g.getLog();
+            Vertex prev = g.getParent();
+            if(log.boxType) {
+                Box box = prev.getMovingBoxes().get(log.boxIndex);
+                curr = curr.newVertexSingleMove(log.boxIndex, new MovingBox(box.getPos(), box.getWidth()));
+            } else {
+                Box box = prev.getMovingObstacles().get(log.boxIndex);
+                curr = curr.newVertexSingleMove(log.boxIndex, new MovingObstacle(box.getPos(), box.getWidth()));
+            }
+            addToMap(curr);
+        }
+        solution = curr;
+    }
+
+    private Vertex nearest(boolean goalSide, Vertex v) {
+        return goalSide ? goalTree.get(goalIndex.nearest(v)) : findNearest(v);
+    }
+
+    private void addToTree(boolean goalSide, Vertex v) {
+        if(goalSide) {
+            goalTree.add(v);
+            goalIndex.insert(v.node);
+        } else {
+            addToMap(v);
+        }
+    }
+
+    /** @return the number of vertices in both trees */
+    @Override
+    public int size() {
+        return super.size() + goalTree.size();
+    }
+}
@@ -0,0 +1,74 @@
+package solver;
+
+import java.time.Duration;
+
+/**
+ * Tells a running solve to stop, either because cancel was called or
+ * because its time budget has passed. Planners check the token in their
+ * sampling and extension loops, so a solve stops within one sample or
+ * extension. A token serves one solve.
+ */
+public final class CancellationToken {
+    /** A token that never asks to stop */
+    static final CancellationToken NONE = new CancellationToken();
+
+    private final boolean timed;
+    private final long budget;
+    private volatile long deadline;
+    private volatile boolean started;
+    private volatile boolean cancelled;
+
+    /** A token that only stops once cancelled */
+    public CancellationToken() {
+        timed = false;
+        budget = 0;
+        started = true;
+    }
+
+    /** A token that also stops once budget has passed from now */
+    public CancellationToken(Duration budget) {
+        this(budget, true);
+    }
+
+    private CancellationToken(Duration budget, boolean start) {
+        timed = true;
+        this.budget = budget.toNanos();
+        if(start) {
+            start();
+        }
+    }
+
+    /**
+     * @return a token that also stops once budget has passed from the call
+     * of start, not before
+     */
+    public static CancellationToken notStarted(Duration budget) {
+        return new CancellationToken(budget, false);
+    }
+
+    /** Let the time budget pass from now, unless it already passes */
+    void start() {
+        if(!started) {
+            deadline = System.nanoTime() + budget;
+            started = true;
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** @return true once the time budget has passed */
+    public boolean isExpired() {
+        return timed && started && System.nanoTime() - deadline >= 0;
+    }
+
+    /** @return true once the solve should stop */
+    public boolean stopRequested() {
+        return cancelled || isExpired();
+    }
+}
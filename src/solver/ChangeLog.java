@@ -0,0 +1,63 @@
+package solver;
+
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+
+import static java.lang.Math.abs;
+
+class ChangeLog {
+    boolean boxType; // true for movingBox, false for moving obstacles
+    boolean indexType;
+
+    int boxIndex;
+    int nodeIndex = -1;
+    double newpos;
+
+    final Box oldBox; // parent.get(boxIndex)
+    //Box newBox;
+
+    ChangeLog(int nodeIndex, boolean boxType, int boxIndex, boolean indexType, Box oldBox, double newpos) {
+        this.nodeIndex = nodeIndex;
+        this.boxType = boxType;
+        this.boxIndex = boxIndex;
+        this.indexType = indexType;
+        this.oldBox = oldBox;
+        this.newpos = newpos;
+    }
+
+    ChangeLog(ChangeLog oldLog, double newpos) {
+        this.indexType = oldLog.indexType;
+        this.boxType = oldLog.boxType; // not going to chang it
+        this.oldBox = oldLog.oldBox;
+        this.nodeIndex = oldLog.nodeIndex;
+        this.boxIndex = oldLog.boxIndex;
+        this.newpos = newpos;
+    }
+
+    ChangeLog(int index, MovingBox ob, MovingBox nb) {
+        this.boxIndex = index;
+        this.boxType = true;
+        this.oldBox = ob;
+        if(abs(nb.getPos().getY() - ob.getPos().getY()) > 0.001) {
+            this.newpos = nb.getPos().getY();
+            this.indexType = false;
+        } else {
+            this.newpos = nb.getPos().getX();
+            this.indexType = true;
+        }
+    }
+
+    ChangeLog(int index, MovingObstacle ob, MovingObstacle nb) {
+        this.boxIndex = index;
+        this.boxType = false;
+        this.oldBox = ob;
+        if(abs(nb.getPos().getY() - ob.getPos().getY()) > 0.001) {
+            this.newpos = nb.getPos().getY();
+            this.indexType = false;
+        } else {
+            this.newpos = nb.getPos().getX();
+            this.indexType = true;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package solver;
+
+import problem.Box;
+import problem.ProblemSpec;
+import problem.StaticObstacle;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+/**
+ * Collision queries for box configurations backed by a SpatialGrid.
+ *
+ * The static obstacles are inserted once. The moving boxes and obstacles
+ * mirror the configuration of the last Vertex that was queried, when the next
+ * query is for a child of that Vertex only the box recorded in its ChangeLog
+ * is moved in the grid.
+ *
+ * Ids in the grid: static obstacles first, then moving boxes, then moving
+ * obstacles.
+ */
+final class CollisionChecker {
+    private final SpatialGrid grid;
+    private final int numStatic;
+    private final int numBoxes;
+    private final int numObstacles;
+
+    // the configuration currently mirrored by the grid
+    private Vertex bound;
+    // static obstacle raster of every moving box, then every moving obstacle
+    private final StaticRaster[] rasters;
+    private final Box[] boxes;
+    private final Box[] obstacles;
+    // where the checks are counted, see RoadmapForBox.setMetrics
+    PlannerMetrics metrics = new PlannerMetrics();
+
+    CollisionChecker(ProblemSpec ps) {
+        this(ps, RoadmapCache.inMemory(ps));
+    }
+
+    /** @param cache where the static obstacle rasters come from */
+    CollisionChecker(ProblemSpec ps, RoadmapCache cache) {
+        List<StaticObstacle> staticObs = ps.getStaticObstacles();
+        numStatic = staticObs.size();
+        numBoxes = ps.getMovingBoxes().size();
+        numObstacles = ps.getMovingObstacles().size();
+
+        double width = ps.getRobotWidth();
+        for(Box obs : ps.getMovingObstacles()) {
+            width = Math.max(width, obs.getWidth());
+        }
+        grid = new SpatialGrid(SpatialGrid.resolutionFor(width),
+                numStatic + numBoxes + numObstacles);
+
+        for(int i = 0; i < numStatic; i++) {
+            Rectangle2D rect = staticObs.get(i).getRect();
+            grid.put(i, rect.getMinX(), rect.getMinY(), rect.getMaxX(), rect.getMaxY());
+        }
+        boxes = new Box[numBoxes];
+        obstacles = new Box[numObstacles];
+
+        // one raster per distinct width, shared by the objects of that width
+        rasters = new StaticRaster[numBoxes + numObstacles];
+        for(int i = 0; i < rasters.length; i++) {
+            rasters[i] = cache.raster(i < numBoxes ? ps.getMovingBoxes().get(i).getWidth()
+                    : ps.getMovingObstacles().get(i - numBoxes).getWidth());
+        }
+    }
+
+    /** Grid id of moving box i */
+    int boxId(int index) {
+        return numStatic + index;
+    }
+
+    /** Grid id of moving obstacle i */
+    int obstacleId(int index) {
+        return numStatic + numBoxes + index;
+    }
+
+    /** Check whether any moving object in v overlaps another object */
+    boolean collisionExist(Vertex v) {
+        bind(v);
+        for(int i = 0; i < numObstacles; i++) {
+            if(overlapsOthers(obstacleId(i), obstacles[i])) {
+                return true;
+            }
+        }
+        for(int i = 0; i < numBoxes; i++) {
+            if(overlapsOthers(boxId(i), boxes[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether only the object moved by the ChangeLog of v overlaps
+     * another object, valid when the parent of v is collision free
+     */
+    boolean movedCollides(Vertex v) {
+        metrics.count(PlannerMetrics.Counter.movedChecks);
+        ChangeLog log = v.getLog();
+        if(log == null) {
+            return collisionExist(v);
+        }
+        bind(v);
+        return log.boxType
+                ? overlapsOthers(boxId(log.boxIndex), boxes[log.boxIndex])
+                : overlapsOthers(obstacleId(log.boxIndex), obstacles[log.boxIndex]);
+    }
+
+    /**
+     * Raster lookup only, no geometry
+     * @param boxType true for a moving box, false for a moving obstacle
+     * @return true if the object with its bottom-left corner at (x, y) is
+     * certain to overlap a static obstacle
+     */
+    boolean staticallyBlocked(boolean boxType, int index, double x, double y) {
+        return rasters[boxType ? index : numBoxes + index].isBlocked(x, y);
+    }
+
+    /**
+     * Check whether rect overlaps any object of curr other than the one
+     * with grid id exclude
+     */
+    boolean collisionExist(int exclude, Vertex curr, Rectangle2D rect) {
+        bind(curr);
+        return grid.overlapsAny(rect.getMinX(), rect.getMinY(),
+                rect.getMaxX(), rect.getMaxY(), exclude);
+    }
+
+    /**
+     * Find how far a moving object of curr can travel along one axis
+     * without running into another object
+     * @param id the grid id of the object, see boxId and obstacleId
+     * @param box the object as it is in curr
+     * @return the longest free move towards travel, see SpatialGrid.freeTravel
+     */
+    double freeTravel(int id, Vertex curr, Box box, boolean alongX, double travel) {
+        metrics.count(PlannerMetrics.Counter.freeTravelScans);
+        bind(curr);
+        double x = box.getPos().getX();
+        double y = box.getPos().getY();
+        double w = box.getWidth();
+        return grid.freeTravel(x, y, x + w, y + w, alongX, travel, id);
+    }
+
+    private boolean overlapsOthers(int id, Box box) {
+        double x = box.getPos().getX();
+        double y = box.getPos().getY();
+        double w = box.getWidth();
+        return grid.overlapsAny(x, y, x + w, y + w, id);
+    }
+
+    /** Make the grid mirror the configuration of v */
+    private void bind(Vertex v) {
+        if(v == bound) {
+            return;
+        }
+        ChangeLog log = v.getLog();
+        if(bound != null && log != null && v.isChildOf(bound)) {
+            // a single box moved since the last query
+            if(log.boxType) {
+                update(boxId(log.boxIndex), boxes, log.boxIndex, v.getMovingBoxes());
+            } else {
+                update(obstacleId(log.boxIndex), obstacles, log.boxIndex, v.getMovingObstacles());
+            }
+        } else {
+            List<Box> movingBoxes = v.getMovingBoxes();
+            for(int i = 0; i < numBoxes; i++) {
+                update(boxId(i), boxes, i, movingBoxes);
+            }
+            List<Box> movingObs = v.getMovingObstacles();
+            for(int i = 0; i < numObstacles; i++) {
+                update(obstacleId(i), obstacles, i, movingObs);
+            }
+        }
+        bound = v;
+    }
+
+    private void update(int id, Box[] mirror, int index, List<Box> current) {
+        Box box = current.get(index);
+        if(mirror[index] == box) {
+            return; // unchanged, vertices share untouched boxes
+        }
+        mirror[index] = box;
+        double x = box.getPos().getX();
+        double y = box.getPos().getY();
+        double w = box.getWidth();
+        grid.put(id, x, y, x + w, y + w);
+    }
+}
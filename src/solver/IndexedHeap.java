@@ -0,0 +1,87 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int items with long priorities that knows where
+ * every item is, so the priority of a queued item can be lowered in place
+ * instead of queueing it twice. Items are small non-negative ints, such as
+ * indices into the state arrays of a search.
+ */
+final class IndexedHeap {
+    private int[] items = new int[256];
+    private long[] priorities = new long[256];
+    private int[] position = new int[256]; // -1 if the item is not queued
+    private int size;
+
+    IndexedHeap() {
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int item) {
+        return item < position.length && position[item] >= 0;
+    }
+
+    /** Queue item, or lower its priority if it is queued with a higher one */
+    void offer(int item, long priority) {
+        if(item >= position.length) {
+            int old = position.length;
+            position = Arrays.copyOf(position, Math.max(item + 1, old * 2));
+            Arrays.fill(position, old, position.length, -1);
+        }
+        int i = position[item];
+        if(i < 0) {
+            if(size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                priorities = Arrays.copyOf(priorities, size * 2);
+            }
+            i = size++;
+        } else if(priorities[i] <= priority) {
+            return;
+        }
+        siftUp(i, item, priority);
+    }
+
+    /** Remove and return the item with the lowest priority */
+    int poll() {
+        int top = items[0];
+        position[top] = -1;
+        size--;
+        if(size > 0) {
+            siftDown(0, items[size], priorities[size]);
+        }
+        return top;
+    }
+
+    private void siftUp(int i, int item, long priority) {
+        while(i > 0) {
+            int p = (i - 1) >> 1;
+            if(priorities[p] <= priority) break;
+            place(i, items[p], priorities[p]);
+            i = p;
+        }
+        place(i, item, priority);
+    }
+
+    private void siftDown(int i, int item, long priority) {
+        while(true) {
+            int c = 2 * i + 1;
+            if(c >= size) break;
+            if(c + 1 < size && priorities[c + 1] < priorities[c]) c++;
+            if(priorities[c] >= priority) break;
+            place(i, items[c], priorities[c]);
+            i = c;
+        }
+        place(i, item, priority);
+    }
+
+    private void place(int i, int item, long priority) {
+        items[i] = item;
+        priorities[i] = priority;
+        position[item] = i;
+    }
+}
@@ -1,4 +1,5 @@
 package solver;
 
 public class InsertFailedException extends Exception {
+    private static final long serialVersionUID = 1L;
 }
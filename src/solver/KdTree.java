@@ -0,0 +1,215 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A KD-tree over the flattened configurations of the vertices in a roadmap,
+ * supporting incremental insertion, nearest neighbour and radius queries
+ * under Vertex.distanceTo.
+ *
+ * The tree indexes the points of a Points source in the order they were
+ * added there, node i of the tree is point i. Nodes are kept in parallel
+ * arrays and coordinates are not copied, they are read from the source when
+ * needed, and the source computes the distances of queries. Since a new vertex usually differs from its neighbours in a single
+ * box, each node splits on the coordinate where it differs most from the
+ * node it is attached under rather than cycling through all dimensions.
+ */
+final class KdTree {
+    /** Configurations indexed by the tree, see StoredTree */
+    interface Points {
+        int dimension();
+
+        /** Coordinate d of point, as Vertex.coordinate */
+        double coordinate(int point, int d);
+
+        /** Called with the coordinates of every query before it starts */
+        default void query(double[] query) {
+        }
+
+        /**
+         * Squared distance from point to the query last passed to query,
+         * a source may reuse what it computed for other points of the query
+         */
+        default double squaredDistance(int point, double[] query) {
+            double dist = 0.0;
+            for(int d = 0; d < query.length; d++) {
+                double diff = coordinate(point, d) - query[d];
+                dist += diff * diff;
+            }
+            return dist;
+        }
+    }
+
+    private final Points points;
+    private int[] splitDim = new int[16];
+    private double[] splitValue = new double[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int size = 0;
+
+    // explicit stack for queries, the tree may be deep when built from a chain
+    private int[] stackNode = new int[64];
+    private double[] stackBound = new double[64];
+    // coordinates of the current query
+    private double[] query = new double[0];
+
+    KdTree(Points points) {
+        this.points = points;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Index the next point of the source, which must be point size() */
+    void insert(int point) {
+        if(point != size) {
+            throw new IllegalArgumentException("expected point " + size + ", got " + point);
+        }
+        ensureCapacity(size + 1);
+        int node = size++;
+        left[node] = -1;
+        right[node] = -1;
+        if(node == 0) {
+            splitDim[node] = 0;
+            splitValue[node] = points.dimension() > 0 ? points.coordinate(node, 0) : 0;
+            return;
+        }
+
+        int curr = 0;
+        int depth = 0;
+        while(true) {
+            depth++;
+            boolean goLeft = points.coordinate(node, splitDim[curr]) < splitValue[curr];
+            int next = goLeft ? left[curr] : right[curr];
+            if(next == -1) {
+                if(goLeft) {
+                    left[curr] = node;
+                } else {
+                    right[curr] = node;
+                }
+                break;
+            }
+            curr = next;
+        }
+        int dim = widestDimension(node, curr, depth);
+        splitDim[node] = dim;
+        splitValue[node] = points.coordinate(node, dim);
+    }
+
+    /** @return the point closest to v, or -1 if the tree is empty */
+    int nearest(Vertex v) {
+        if(size == 0) {
+            return -1;
+        }
+        load(v);
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+
+        int top = 0;
+        stackNode[top] = 0;
+        stackBound[top++] = 0.0;
+        while(top > 0) {
+            top--;
+            int node = stackNode[top];
+            if(stackBound[top] >= bestDist) continue;
+
+            double d = squaredDistance(node);
+            if(d < bestDist) {
+                bestDist = d;
+                best = node;
+            }
+
+            double diff = query[splitDim[node]] - splitValue[node];
+            int near = diff < 0 ? left[node] : right[node];
+            int far = diff < 0 ? right[node] : left[node];
+            // far side first so the near side is popped next
+            if(far != -1 && diff * diff < bestDist) {
+                top = push(top, far, diff * diff);
+            }
+            if(near != -1) {
+                top = push(top, near, 0.0);
+            }
+        }
+        return best;
+    }
+
+    /** Pass every point within radius of v to out */
+    void within(Vertex v, double radius, IntConsumer out) {
+        if(size == 0) {
+            return;
+        }
+        load(v);
+        double r2 = radius * radius;
+        int top = 0;
+        stackNode[top] = 0;
+        stackBound[top++] = 0.0;
+        while(top > 0) {
+            int node = stackNode[--top];
+            if(squaredDistance(node) <= r2) {
+                out.accept(node);
+            }
+            double diff = query[splitDim[node]] - splitValue[node];
+            int near = diff < 0 ? left[node] : right[node];
+            int far = diff < 0 ? right[node] : left[node];
+            if(far != -1 && diff * diff <= r2) {
+                top = push(top, far, diff * diff);
+            }
+            if(near != -1) {
+                top = push(top, near, 0.0);
+            }
+        }
+    }
+
+    private void load(Vertex v) {
+        int dims = points.dimension();
+        if(query.length != dims) {
+            query = new double[dims];
+        }
+        for(int d = 0; d < dims; d++) {
+            query[d] = v.coordinate(d);
+        }
+        points.query(query);
+    }
+
+    private double squaredDistance(int node) {
+        return points.squaredDistance(node, query);
+    }
+
+    private int push(int top, int node, double bound) {
+        if(top == stackNode.length) {
+            stackNode = Arrays.copyOf(stackNode, top * 2);
+            stackBound = Arrays.copyOf(stackBound, top * 2);
+        }
+        stackNode[top] = node;
+        stackBound[top] = bound;
+        return top + 1;
+    }
+
+    /** The coordinate where points a and b differ the most */
+    private int widestDimension(int a, int b, int depth) {
+        int dims = points.dimension();
+        int best = depth % Math.max(1, dims);
+        double bestDiff = 0.0;
+        for(int d = 0; d < dims; d++) {
+            double diff = Math.abs(points.coordinate(a, d) - points.coordinate(b, d));
+            if(diff > bestDiff) {
+                bestDiff = diff;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= left.length) {
+            return;
+        }
+        int n = Math.max(capacity, left.length * 2);
+        splitDim = Arrays.copyOf(splitDim, n);
+        splitValue = Arrays.copyOf(splitValue, n);
+        left = Arrays.copyOf(left, n);
+        right = Arrays.copyOf(right, n);
+    }
+}
@@ -0,0 +1,558 @@
+package solver;
+
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+import problem.ProblemSpec;
+import problem.StaticObstacle;
+import tester.Tester;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A* over the lattice of configurations in which every moving object sits a
+ * whole number of PRIMITIVE steps away from where it starts. An edge moves
+ * one object one step along one axis.
+ *
+ * A state is packed into as many longs as it needs: for every object the x
+ * and then the y step index, each in as few bits as its range within the
+ * workspace needs, and no field split across two longs. States live in flat
+ * arrays found through a LongIndexMap keyed by a hash that is the sum of
+ * QuantizedKey terms of the step indices, updated in O(1) per step. States
+ * sharing a hash are chained and told apart by their words. The open set is
+ * an IndexedHeap, so a state costs a few bytes per object instead of a
+ * Vertex.
+ *
+ * Goals are snapped to the nearest lattice position of their box. A goal
+ * within Tester.MAX_ERROR of it counts as reached there, a goal further off
+ * is reached from there with one last move per axis, shorter than a step,
+ * checked against the final places of the other objects.
+ *
+ * The search is complete on the lattice: when the open set runs empty
+ * addNewVertex throws InsertFailedException.
+ */
+public class LatticeRoadmap implements Roadmap {
+    static final double STEP = RoadmapForBox.PRIMITIVE;
+    /** States expanded per call of addNewVertex */
+    static final int EXPANSIONS_PER_CALL = 10000;
+    /** Lattice positions this close to the goal are moved onto the goal */
+    private static final double SNAP = 1e-9;
+
+    private final int numBoxes;
+    private final int numObjects;
+    private final double[] widths;
+    private final double[] startX, startY;
+
+    // per coordinate (x and y of every object): step index range and packing
+    private final int[] minIndex;
+    private final int[] count;
+    private final int[] word; // long of the state holding the coordinate
+    private final int[] shift;
+    private final long[] fieldMask;
+    private final int words; // longs per state
+
+    // per object, bit (ix + iy * countX) set where the object is clear of the static obstacles
+    private final long[][] staticFree;
+
+    // goal step indices of the boxes, x and y
+    private final int[] goalIndex;
+    private final List<Point2D> goals;
+    // boxes whose goal is more than MAX_ERROR off the lattice
+    private final boolean[] offLattice;
+    private final List<Rectangle2D> statics = new ArrayList<>();
+    // last moves of the solution after the lattice path, object and position per move
+    private final List<double[]> finalMoves = new ArrayList<>();
+
+    // search state, the words of state s start at s * words
+    private final LongIndexMap index = new LongIndexMap(1 << 16); // hash to the last state with it
+    private long[] states;
+    private long[] hashes = new long[1 << 12];
+    private int[] sameHash = new int[1 << 12]; // earlier state with the same hash, -1 if none
+    private int[] cost = new int[1 << 12];
+    private int[] parent = new int[1 << 12];
+    private boolean[] closed = new boolean[1 << 12];
+    private int numStates;
+    private final IndexedHeap open = new IndexedHeap();
+    private final int[] coords; // decoded step indices of the state being expanded
+    private final int[] scratch;
+    private final long[] key; // words of the state being expanded, then of a neighbour
+    private int found = -1;
+    private int expanded;
+    // the expanded state with the smallest heuristic
+    private int closest = 0;
+    private int closestHeuristic = Integer.MAX_VALUE;
+    // checked every CHECK_INTERVAL expansions, set for the length of grow
+    private CancellationToken token = CancellationToken.NONE;
+    private static final int CHECK_INTERVAL = 256;
+
+    private final ProblemSpec ps;
+    private Vertex solution;
+
+    public LatticeRoadmap(ProblemSpec ps) {
+        this.ps = ps;
+        List<Box> boxes = ps.getMovingBoxes();
+        List<Box> obstacles = ps.getMovingObstacles();
+        numBoxes = boxes.size();
+        numObjects = numBoxes + obstacles.size();
+        widths = new double[numObjects];
+        startX = new double[numObjects];
+        startY = new double[numObjects];
+        for(int k = 0; k < numObjects; k++) {
+            Box box = k < numBoxes ? boxes.get(k) : obstacles.get(k - numBoxes);
+            widths[k] = box.getWidth();
+            startX[k] = box.getPos().getX();
+            startY[k] = box.getPos().getY();
+        }
+
+        int dims = 2 * numObjects;
+        minIndex = new int[dims];
+        count = new int[dims];
+        word = new int[dims];
+        shift = new int[dims];
+        fieldMask = new long[dims];
+        int w = 0, bits = 0;
+        for(int d = 0; d < dims; d++) {
+            double start = (d & 1) == 0 ? startX[d >> 1] : startY[d >> 1];
+            double room = 1 - widths[d >> 1];
+            minIndex[d] = -(int) Math.floor(start / STEP + SNAP);
+            int maxIndex = (int) Math.floor((room - start) / STEP + SNAP);
+            count[d] = maxIndex - minIndex[d] + 1;
+            int width = Math.max(1, 32 - Integer.numberOfLeadingZeros(count[d] - 1));
+            if(bits + width > 64) {
+                w++;
+                bits = 0;
+            }
+            word[d] = w;
+            shift[d] = bits;
+            fieldMask[d] = (1L << width) - 1;
+            bits += width;
+        }
+        words = w + 1;
+        states = new long[words << 12];
+        coords = new int[dims];
+        scratch = new int[dims];
+        key = new long[words];
+
+        for(StaticObstacle obstacle : ps.getStaticObstacles()) {
+            statics.add(obstacle.getRect());
+        }
+        staticFree = new long[numObjects][];
+        for(int k = 0; k < numObjects; k++) {
+            staticFree[k] = staticFreeMap(k);
+        }
+
+        goals = ps.getMovingBoxEndPositions();
+        goalIndex = new int[2 * numBoxes];
+        offLattice = new boolean[numBoxes];
+        for(int k = 0; k < numBoxes; k++) {
+            goalIndex[2 * k] = nearestIndex(2 * k, goals.get(k).getX() - startX[k]);
+            goalIndex[2 * k + 1] = nearestIndex(2 * k + 1, goals.get(k).getY() - startY[k]);
+            offLattice[k] = Math.abs(x(k, goalIndex[2 * k] - minIndex[2 * k]) - goals.get(k).getX()) > Tester.MAX_ERROR
+                    || Math.abs(y(k, goalIndex[2 * k + 1] - minIndex[2 * k + 1]) - goals.get(k).getY())
+                    > Tester.MAX_ERROR;
+        }
+
+        // every object where it starts, step index 0
+        for(int d = 0; d < dims; d++) {
+            coords[d] = -minIndex[d];
+        }
+        pack(coords, key);
+        addState(key, hash(coords), 0, -1);
+    }
+
+    /** @return the step index of coordinate d closest to offset from the start, within the workspace */
+    private int nearestIndex(int d, double offset) {
+        int i = (int) Math.round(offset / STEP);
+        return Math.max(minIndex[d], Math.min(minIndex[d] + count[d] - 1, i));
+    }
+
+    /**
+     * Mark the lattice positions of object k that no static obstacle
+     * overlaps, looking at each obstacle only around the positions it can
+     * block
+     */
+    private long[] staticFreeMap(int k) {
+        int cx = count[2 * k], cy = count[2 * k + 1];
+        long[] free = new long[(int) (((long) cx * cy + 63) >>> 6)];
+        Arrays.fill(free, -1L);
+        double w = widths[k];
+        for(Rectangle2D o : statics) {
+            // the object overlaps o when its corner is in (minX - w, maxX) x (minY - w, maxY)
+            int ix0 = Math.max(0, (int) Math.floor((o.getMinX() - w - startX[k]) / STEP) - minIndex[2 * k] - 1);
+            int ix1 = Math.min(cx - 1, (int) Math.ceil((o.getMaxX() - startX[k]) / STEP) - minIndex[2 * k] + 1);
+            int iy0 = Math.max(0, (int) Math.floor((o.getMinY() - w - startY[k]) / STEP) - minIndex[2 * k + 1] - 1);
+            int iy1 = Math.min(cy - 1, (int) Math.ceil((o.getMaxY() - startY[k]) / STEP) - minIndex[2 * k + 1] + 1);
+            for(int iy = iy0; iy <= iy1; iy++) {
+                for(int ix = ix0; ix <= ix1; ix++) {
+                    if(o.intersects(x(k, ix), y(k, iy), w, w)) {
+                        int bit = ix + iy * cx;
+                        free[bit >>> 6] &= ~(1L << bit);
+                    }
+                }
+            }
+        }
+        return free;
+    }
+
+    /** The lattice search starts at the initial configuration, there is nothing to sample */
+    @Override
+    public Vertex newVertex() {
+        return new Vertex(ps.getMovingBoxes(), ps.getMovingObstacles());
+    }
+
+    /**
+     * Expand up to EXPANSIONS_PER_CALL states, the sample is ignored
+     * @return true once the goal has been reached
+     * @throws InsertFailedException if the lattice has no path to the goal
+     */
+    @Override
+    public boolean addNewVertex(Vertex sample) throws InsertFailedException {
+        if(found >= 0) {
+            return true;
+        }
+        for(int n = 0; n < EXPANSIONS_PER_CALL; n++) {
+            if(open.isEmpty()) {
+                throw new InsertFailedException();
+            }
+            if(n % CHECK_INTERVAL == 0 && token.stopRequested()) {
+                return false;
+            }
+            int s = open.poll();
+            closed[s] = true;
+            expanded++;
+            unpack(s, coords);
+            if(atGoal(coords) && finish(coords)) {
+                found = s;
+                return true;
+            }
+            int h = heuristic(coords);
+            if(h < closestHeuristic) {
+                closestHeuristic = h;
+                closest = s;
+            }
+            expand(s);
+        }
+        return false;
+    }
+
+    private void expand(int s) {
+        int g = cost[s] + 1;
+        System.arraycopy(states, s * words, key, 0, words);
+        long h = hashes[s];
+        for(int k = 0; k < numObjects; k++) {
+            for(int axis = 0; axis < 2; axis++) {
+                int d = 2 * k + axis;
+                long original = key[word[d]];
+                for(int dir = -1; dir <= 1; dir += 2) {
+                    int c = coords[d] + dir;
+                    if(c < 0 || c >= count[d]) continue;
+                    if(!isFree(k, axis, coords[d], c)) continue;
+                    key[word[d]] = (original & ~(fieldMask[d] << shift[d])) | ((long) c << shift[d]);
+                    long neighbour = h - QuantizedKey.term(d, coords[d]) + QuantizedKey.term(d, c);
+
+                    int t = find(key, neighbour);
+                    if(t < 0) {
+                        addState(key, neighbour, g, s);
+                    } else if(!closed[t] && g < cost[t]) {
+                        cost[t] = g;
+                        parent[t] = s;
+                        open.offer(t, priority(t));
+                    }
+                }
+                key[word[d]] = original;
+            }
+        }
+    }
+
+    /**
+     * Check whether object k can take one step from index from to index to
+     * along axis, the others being where coords puts them
+     */
+    private boolean isFree(int k, int axis, int from, int to) {
+        int ix = axis == 0 ? to : coords[2 * k];
+        int iy = axis == 1 ? to : coords[2 * k + 1];
+        int bit = ix + iy * count[2 * k];
+        // a step is shorter than the object, so the swept area is the union
+        // of both placements and the one it leaves is already known free
+        if((staticFree[k][bit >>> 6] & (1L << bit)) == 0) {
+            return false;
+        }
+        double w = widths[k];
+        double x0 = x(k, coords[2 * k]), y0 = y(k, coords[2 * k + 1]);
+        double x1 = x0 + w, y1 = y0 + w;
+        double moved = (to - from) * STEP;
+        if(axis == 0) {
+            if(moved > 0) x1 += moved; else x0 += moved;
+        } else {
+            if(moved > 0) y1 += moved; else y0 += moved;
+        }
+        for(int j = 0; j < numObjects; j++) {
+            if(j == k) continue;
+            double ox = x(j, coords[2 * j]), oy = y(j, coords[2 * j + 1]);
+            if(x0 < ox + widths[j] && ox < x1 && y0 < oy + widths[j] && oy < y1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plan the last moves of the boxes whose goal is off the lattice, from
+     * where c puts every object, into finalMoves
+     * @return false if one of them collides, c is then not a goal state
+     */
+    private boolean finish(int[] c) {
+        finalMoves.clear();
+        double[] px = new double[numObjects], py = new double[numObjects];
+        for(int j = 0; j < numObjects; j++) {
+            px[j] = x(j, c[2 * j]);
+            py[j] = y(j, c[2 * j + 1]);
+        }
+        for(int k = 0; k < numBoxes; k++) {
+            if(!offLattice[k]) continue;
+            double gx = goals.get(k).getX(), gy = goals.get(k).getY();
+            if(moveFree(k, px, py, gx, py[k]) && moveFree(k, px, py, gx, gy)) {
+                finalMoves.add(new double[]{k, gx, py[k]});
+            } else if(moveFree(k, px, py, px[k], gy) && moveFree(k, px, py, gx, gy)) {
+                finalMoves.add(new double[]{k, px[k], gy});
+            } else {
+                finalMoves.clear();
+                return false;
+            }
+            finalMoves.add(new double[]{k, gx, gy});
+            px[k] = gx;
+            py[k] = gy;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether object k can move along one axis from where px and py
+     * put it to (x, y), with the others where px and py put them
+     */
+    private boolean moveFree(int k, double[] px, double[] py, double x, double y) {
+        double w = widths[k];
+        double x0 = Math.min(px[k], x), y0 = Math.min(py[k], y);
+        double x1 = Math.max(px[k], x) + w, y1 = Math.max(py[k], y) + w;
+        for(Rectangle2D o : statics) {
+            if(o.intersects(x0, y0, x1 - x0, y1 - y0)) {
+                return false;
+            }
+        }
+        for(int j = 0; j < numObjects; j++) {
+            if(j == k) continue;
+            if(x0 < px[j] + widths[j] && px[j] < x1 && y0 < py[j] + widths[j] && py[j] < y1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean atGoal(int[] c) {
+        for(int d = 0; d < 2 * numBoxes; d++) {
+            if(c[d] + minIndex[d] != goalIndex[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Steps still needed by the boxes, never more than the real number */
+    private int heuristic(int[] c) {
+        int h = 0;
+        for(int d = 0; d < 2 * numBoxes; d++) {
+            h += Math.abs(c[d] + minIndex[d] - goalIndex[d]);
+        }
+        return h;
+    }
+
+    /** f in the high bits, ties go to the deeper state */
+    private long priority(int s) {
+        unpack(s, scratch);
+        long f = cost[s] + heuristic(scratch);
+        return (f << 32) | (Integer.MAX_VALUE - cost[s]);
+    }
+
+    private void addState(long[] words, long hash, int g, int from) {
+        if(numStates == cost.length) {
+            int n = numStates * 2;
+            states = Arrays.copyOf(states, n * this.words);
+            hashes = Arrays.copyOf(hashes, n);
+            sameHash = Arrays.copyOf(sameHash, n);
+            cost = Arrays.copyOf(cost, n);
+            parent = Arrays.copyOf(parent, n);
+            closed = Arrays.copyOf(closed, n);
+        }
+        int s = numStates++;
+        System.arraycopy(words, 0, states, s * this.words, this.words);
+        hashes[s] = hash;
+        sameHash[s] = index.get(mapKey(hash));
+        cost[s] = g;
+        parent[s] = from;
+        index.put(mapKey(hash), s);
+        open.offer(s, priority(s));
+    }
+
+    /** @return the state with these words and hash, -1 if it has not been reached */
+    private int find(long[] words, long hash) {
+        for(int s = index.get(mapKey(hash)); s >= 0; s = sameHash[s]) {
+            if(hashes[s] == hash && sameWords(s, words)) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    private boolean sameWords(int s, long[] words) {
+        int base = s * this.words;
+        for(int i = 0; i < this.words; i++) {
+            if(states[base + i] != words[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return the sum of the QuantizedKey terms of the step indices */
+    private static long hash(int[] c) {
+        long h = 0;
+        for(int d = 0; d < c.length; d++) {
+            h += QuantizedKey.term(d, c[d]);
+        }
+        return h;
+    }
+
+    /** LongIndexMap cannot hold Long.MIN_VALUE */
+    private static long mapKey(long hash) {
+        return hash == Long.MIN_VALUE ? 0 : hash;
+    }
+
+    private void pack(int[] c, long[] out) {
+        Arrays.fill(out, 0L);
+        for(int d = 0; d < c.length; d++) {
+            out[word[d]] |= (long) c[d] << shift[d];
+        }
+    }
+
+    private void unpack(int s, int[] c) {
+        int base = s * words;
+        for(int d = 0; d < c.length; d++) {
+            c[d] = (int) ((states[base + word[d]] >>> shift[d]) & fieldMask[d]);
+        }
+    }
+
+    private double x(int k, int c) {
+        return startX[k] + (c + minIndex[2 * k]) * STEP;
+    }
+
+    private double y(int k, int c) {
+        return startY[k] + (c + minIndex[2 * k + 1]) * STEP;
+    }
+
+    /**
+     * @return the path to the goal as a Vertex chain with one vertex per
+     * straight run of steps of one object, null until the goal is reached
+     */
+    @Override
+    public Vertex getSolution() {
+        if(found < 0) {
+            return null;
+        }
+        if(solution == null) {
+            solution = chainTo(found);
+            for(double[] move : finalMoves) {
+                int k = (int) move[0];
+                solution = solution.newVertexSingleMove(k,
+                        new MovingBox(new Point2D.Double(move[1], move[2]), widths[k]));
+            }
+        }
+        return solution;
+    }
+
+    /** @return the path to the expanded state closest to the goal, see getSolution */
+    @Override
+    public Vertex getClosest() {
+        return found >= 0 ? getSolution() : chainTo(closest);
+    }
+
+    @Override
+    public SolveResult grow(CancellationToken token) {
+        this.token = token;
+        try {
+            return SolveResult.drive(this, token, false);
+        } finally {
+            this.token = CancellationToken.NONE;
+        }
+    }
+
+    /** @return the path from the initial state to state end */
+    private Vertex chainTo(int end) {
+        int length = 0;
+        for(int s = end; s != -1; s = parent[s]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for(int s = end, i = length - 1; s != -1; s = parent[s], i--) {
+            path[i] = s;
+        }
+
+        int dims = 2 * numObjects;
+        int[] prev = new int[dims];
+        int[] curr = new int[dims];
+        int[] next = new int[dims];
+        Vertex v = newVertex();
+        unpack(path[0], prev);
+        for(int i = 1; i < length; i++) {
+            unpack(path[i], curr);
+            int d = changed(prev, curr);
+            // extend the run while the same coordinate keeps changing
+            while(i + 1 < length) {
+                unpack(path[i + 1], next);
+                if(changed(curr, next) != d) break;
+                System.arraycopy(next, 0, curr, 0, dims);
+                i++;
+            }
+            v = moveTo(v, d >> 1, curr);
+            System.arraycopy(curr, 0, prev, 0, dims);
+        }
+        return v;
+    }
+
+    /** The only coordinate in which a and b differ */
+    private static int changed(int[] a, int[] b) {
+        for(int d = 0; d < a.length; d++) {
+            if(a[d] != b[d]) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    /** Move object k of v to where c puts it, snapping boxes onto their goal */
+    private Vertex moveTo(Vertex v, int k, int[] c) {
+        double x = x(k, c[2 * k]), y = y(k, c[2 * k + 1]);
+        if(k < numBoxes) {
+            Point2D goal = goals.get(k);
+            if(Math.abs(x - goal.getX()) < SNAP) x = goal.getX();
+            if(Math.abs(y - goal.getY()) < SNAP) y = goal.getY();
+            return v.newVertexSingleMove(k, new MovingBox(new Point2D.Double(x, y), widths[k]));
+        }
+        return v.newVertexSingleMove(k - numBoxes, new MovingObstacle(new Point2D.Double(x, y), widths[k]));
+    }
+
+    /** @return the number of states reached so far */
+    @Override
+    public int size() {
+        return numStates;
+    }
+
+    @Override
+    public void printTrace() {
+        System.out.println("lattice states " + numStates + ", expanded " + expanded
+                + (found >= 0 ? ", goal after " + cost[found] + " steps" : ""));
+    }
+}
@@ -0,0 +1,84 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from long keys to non-negative int values,
+ * with linear probing and no boxing. Entries are never removed.
+ */
+final class LongIndexMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    LongIndexMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** @return the value of key, or -1 if it is not in the map */
+    int get(long key) {
+        for(int i = slot(key); ; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                return values[i];
+            }
+            if(keys[i] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Map key to value, key must not be Long.MIN_VALUE
+     */
+    void put(long key, int value) {
+        int i = slot(key);
+        while(keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if(keys[i] == EMPTY) {
+            keys[i] = key;
+            if(++size * 2 > keys.length) {
+                values[i] = value;
+                grow();
+                return;
+            }
+        }
+        values[i] = value;
+    }
+
+    private int slot(long key) {
+        // finaliser of SplittableRandom, spreads packed coordinates
+        long z = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (z ^ (z >>> 33)) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for(int k = 0; k < oldKeys.length; k++) {
+            if(oldKeys[k] == EMPTY) continue;
+            int i = slot(oldKeys[k]);
+            while(keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[k];
+            values[i] = oldValues[k];
+        }
+    }
+}
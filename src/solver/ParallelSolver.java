@@ -0,0 +1,257 @@
+package solver;
+
+import problem.ProblemSpec;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs several independent RoadmapForBox planners over the same ProblemSpec
+ * on a ForkJoinPool, each with its own seed. All planners share one
+ * CancellationToken, the first planner that reaches the goal wins and
+ * cancels it, so the others stop within their current sample or extension.
+ */
+public class ParallelSolver {
+
+    /** What a single planner did before it stopped */
+    public static class WorkerStats {
+        public final long seed;
+        public final int iterations;
+        public final int treeSize;
+        public final long nanos;
+        public final String outcome;
+
+        WorkerStats(long seed, int iterations, int treeSize, long nanos, String outcome) {
+            this.seed = seed;
+            this.iterations = iterations;
+            this.treeSize = treeSize;
+            this.nanos = nanos;
+            this.outcome = outcome;
+        }
+
+        public String toString() {
+            return String.format("seed %20d  %-9s  iterations %6d  tree %7d  %8.1f ms",
+                    seed, outcome, iterations, treeSize, nanos / 1e6);
+        }
+    }
+
+    /** The winning planner, if any, and the statistics of all planners */
+    public static class Result {
+        public final RoadmapForBox winner;
+        public final long winningSeed;
+        public final List<WorkerStats> stats;
+        /**
+         * The metrics of every planner of the solve, and of the later phases
+         * of the winner's solution that the caller times into them
+         */
+        public final PlannerMetrics metrics;
+
+        Result(RoadmapForBox winner, long winningSeed, List<WorkerStats> stats, PlannerMetrics metrics) {
+            this.winner = winner;
+            this.winningSeed = winningSeed;
+            this.stats = stats;
+            this.metrics = metrics;
+        }
+
+        public boolean solved() {
+            return winner != null;
+        }
+    }
+
+    private final ProblemSpec ps;
+    private final int workers;
+    private final long baseSeed;
+    private final SamplingStrategy strategy;
+    private final RoadmapCache cache;
+    private final boolean offHeap;
+
+    /**
+     * @param ps the problem, shared read-only by all planners
+     * @param workers the number of planners to run concurrently
+     * @param baseSeed the seeds of the planners are derived from this one
+     */
+    public ParallelSolver(ProblemSpec ps, int workers, long baseSeed) {
+        this(ps, workers, baseSeed, SamplingStrategy.uniform);
+    }
+
+    /** @param strategy how every planner draws its samples */
+    public ParallelSolver(ProblemSpec ps, int workers, long baseSeed, SamplingStrategy strategy) {
+        this(ps, workers, baseSeed, strategy, RoadmapCache.inMemory(ps));
+    }
+
+    /** @param cache static free space structures shared by all planners */
+    public ParallelSolver(ProblemSpec ps, int workers, long baseSeed, SamplingStrategy strategy,
+                          RoadmapCache cache) {
+        this(ps, workers, baseSeed, strategy, cache, false);
+    }
+
+    /** @param offHeap keep the tree of every planner outside the heap, see TreeStore */
+    public ParallelSolver(ProblemSpec ps, int workers, long baseSeed, SamplingStrategy strategy,
+                          RoadmapCache cache, boolean offHeap) {
+        this.ps = ps;
+        this.workers = workers;
+        this.baseSeed = baseSeed;
+        this.strategy = strategy;
+        this.cache = cache;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Run all planners until one reaches the goal or all of them have done
+     * maxIter iterations
+     */
+    public Result solve(int maxIter) throws InterruptedException {
+        PlannerMetrics metrics = new PlannerMetrics();
+        SplittableRandom seeds = new SplittableRandom(baseSeed);
+        CancellationToken token = new CancellationToken();
+        RoadmapForBox[] roadmaps = new RoadmapForBox[workers];
+        List<Callable<WorkerStats>> tasks = new ArrayList<>();
+        for(int i = 0; i < workers; i++) {
+            final long seed = seeds.nextLong();
+            final int id = i;
+            tasks.add(() -> {
+                long start = System.nanoTime();
+                Object event = PlannerMetrics.JFR ? SolveEvent.started() : null;
+                RoadmapForBox rm = new RoadmapForBox(ps, seed, strategy, cache, offHeap);
+                rm.setMetrics(metrics);
+                rm.token = token;
+                int iter = 0;
+                String outcome = "exhausted";
+                try {
+                    for(; iter < maxIter; iter++) {
+                        if(token.isCancelled()) {
+                            outcome = "cancelled";
+                            break;
+                        }
+                        if(rm.addNewVertex(rm.newVertex())) {
+                            // only the first planner to get here wins
+                            synchronized(roadmaps) {
+                                outcome = token.isCancelled() ? "cancelled" : "solved";
+                                if(outcome.equals("solved")) {
+                                    roadmaps[id] = rm;
+                                    token.cancel();
+                                }
+                            }
+                            iter++;
+                            break;
+                        }
+                    }
+                } catch (InsertFailedException e) {
+                    // a sampler stopped by the token gives up the same way
+                    outcome = token.isCancelled() ? "cancelled" : "failed";
+                } finally {
+                    // the winner's map is used after the token is cancelled
+                    rm.token = CancellationToken.NONE;
+                }
+                metrics.treeSize(rm.size());
+                if(event != null) {
+                    SolveEvent.commit(event, seed, iter, rm.size(), outcome);
+                }
+                return new WorkerStats(seed, iter, rm.size(), System.nanoTime() - start, outcome);
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            List<WorkerStats> stats = new ArrayList<>();
+            for(Future<WorkerStats> f : pool.invokeAll(tasks)) {
+                stats.add(f.get());
+            }
+            for(int i = 0; i < workers; i++) {
+                if(roadmaps[i] != null) {
+                    return new Result(roadmaps[i], stats.get(i).seed, stats, metrics);
+                }
+            }
+            return new Result(null, 0, stats, metrics);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Solve a problem with several planners in parallel.
+     * @param args inputfilename [workers] [seed] [outputfilename], and
+     * --sampler=uniform|halton|goal anywhere to choose the sampling strategy,
+     * --cache=directory to reuse the static structures of earlier runs and
+     * --offheap to keep the trees in direct buffers
+     */
+    public static void main(String[] args) throws InterruptedException {
+        SamplingStrategy strategy = SamplingStrategy.uniform;
+        String cacheDir = null;
+        boolean offHeap = false;
+        List<String> positional = new ArrayList<>();
+        for(String arg : args) {
+            if(arg.startsWith("--sampler=")) {
+                strategy = SamplingStrategy.valueOf(arg.substring("--sampler=".length()));
+            } else if(arg.startsWith("--cache=")) {
+                cacheDir = arg.substring("--cache=".length());
+            } else if(arg.equals("--offheap")) {
+                offHeap = true;
+            } else {
+                positional.add(arg);
+            }
+        }
+        args = positional.toArray(new String[0]);
+
+        ProblemSpec ps = new ProblemSpec();
+        try {
+            ps.loadProblem(args[0]);
+        } catch (IOException e) {
+            System.out.println("IO Exception occured");
+            return;
+        }
+        int workers = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        RoadmapCache cache;
+        try {
+            cache = cacheDir == null ? RoadmapCache.inMemory(ps) : RoadmapCache.open(Paths.get(cacheDir), ps);
+        } catch (IOException e) {
+            System.out.println("Cannot open cache, starting cold: " + e.getMessage());
+            cache = RoadmapCache.inMemory(ps);
+        }
+
+        Result result = new ParallelSolver(ps, workers, seed, strategy, cache, offHeap).solve(RoadmapForBox.MAX_ITER);
+        for(WorkerStats stats : result.stats) {
+            System.out.println(stats);
+        }
+        if(result.solved()) {
+            System.out.println("Solved, winning seed " + result.winningSeed);
+            if(args.length > 3) {
+                try {
+                    long start = PlannerMetrics.start();
+                    Vertex solution = new PathShortcutter(result.winner, result.winningSeed)
+                            .shorten(result.winner.getSolution());
+                    result.metrics.stop(PlannerMetrics.Phase.shortcut, start);
+                    start = PlannerMetrics.start();
+                    List<Waypoint> path = new RobotPlanner(ps, cache).plan(solution);
+                    result.metrics.stop(PlannerMetrics.Phase.robot, start);
+                    SolutionWriter.write(ps, path, args[3]);
+                } catch (RobotPathNotFoundException e) {
+                    System.out.println("No robot path: " + e.getMessage());
+                } catch (IOException e) {
+                    System.out.println("IO Exception occured");
+                }
+            }
+        } else {
+            System.out.println("No solution");
+        }
+        if(PlannerMetrics.ENABLED) {
+            System.err.println(result.metrics.toJson());
+        }
+        try {
+            cache.save();
+        } catch (IOException e) {
+            System.out.println("Cannot save cache: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package solver;
+
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Shortens a solution found by a roadmap before the robot path is planned.
+ *
+ * The parent chain of the solution is flattened into its configurations.
+ * Random pairs of configurations are joined directly, moving each object
+ * that differs through a corner, whenever that takes fewer moves than the
+ * chain between them. Consecutive moves of the same object along the same
+ * axis are then merged into one. Every new move passes the same swept
+ * collision check as the roadmap.
+ */
+public class PathShortcutter {
+    /** Shortcut attempts per move of the original path */
+    static final int ATTEMPTS_PER_MOVE = 4;
+
+    // only used for its collision queries
+    private final RoadmapForBox geometry;
+    private final SplittableRandom random;
+
+    /** @param geometry the planner that found the solution, or any planner of the same problem */
+    public PathShortcutter(RoadmapForBox geometry, long seed) {
+        this.geometry = geometry;
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @param solution the last vertex of a collision free chain
+     * @return the last vertex of a new chain from the same root to the same
+     * configuration, with no more moves than the original
+     */
+    public Vertex shorten(Vertex solution) {
+        return shorten(solution, CancellationToken.NONE);
+    }
+
+    /**
+     * As shorten(Vertex), but once token asks to stop no more shortcuts are
+     * tried and the chain shortened so far is returned
+     */
+    public Vertex shorten(Vertex solution, CancellationToken token) {
+        List<Vertex> path = solution.pathFromRoot();
+        int attempts = ATTEMPTS_PER_MOVE * path.size();
+        merge(path);
+        for(int k = 0; k < attempts && path.size() > 2 && !token.stopRequested(); k++) {
+            int i = random.nextInt(path.size() - 2);
+            int j = i + 2 + random.nextInt(path.size() - i - 2);
+            List<Vertex> route = geometry.connectDirect(path.get(i), path.get(j));
+            if(route != null && route.size() < j - i) {
+                List<Vertex> tail = path.subList(i + 1, j + 1);
+                tail.clear();
+                tail.addAll(route);
+            }
+        }
+        merge(path);
+        return relink(path);
+    }
+
+    /**
+     * Merge every pair of consecutive moves of the same object along the
+     * same axis, dropping moves that cancel out
+     */
+    private void merge(List<Vertex> path) {
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            for(int k = 1; k + 1 < path.size(); k++) {
+                Vertex before = path.get(k - 1);
+                Vertex after = path.get(k + 1);
+                int first = movedCoordinate(before, path.get(k));
+                if(first < 0 || first != movedCoordinate(path.get(k), after)) continue;
+
+                int across = movedCoordinate(before, after);
+                if(across == -1) {
+                    // back where it started
+                    path.subList(k, k + 2).clear();
+                    changed = true;
+                } else if(isFree(before, after, first >> 1)) {
+                    path.remove(k);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /** @return true if moving object i of a to where it is in b collides with nothing */
+    private boolean isFree(Vertex a, Vertex b, int i) {
+        int numBoxes = a.getMovingBoxes().size();
+        if(i < numBoxes) {
+            Box box = b.getMovingBoxes().get(i);
+            return !geometry.collisionExist(i, a, new MovingBox(box.getPos(), box.getWidth()));
+        } else {
+            Box box = b.getMovingObstacles().get(i - numBoxes);
+            return !geometry.collisionExist(i - numBoxes, a,
+                    new MovingObstacle(box.getPos(), box.getWidth()));
+        }
+    }
+
+    /**
+     * @return the only coordinate in which a and b differ, -1 if they are
+     * equal or -2 if they differ in more than one coordinate
+     */
+    static int movedCoordinate(Vertex a, Vertex b) {
+        int moved = -1;
+        for(int d = 0; d < a.dimension(); d++) {
+            if(a.coordinate(d) != b.coordinate(d)) {
+                if(moved != -1) {
+                    return -2;
+                }
+                moved = d;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Chain the configurations of path as single moves from its root
+     * @throws IllegalArgumentException if two consecutive configurations
+     * differ in more than one coordinate
+     */
+    static Vertex relink(List<Vertex> path) {
+        Vertex curr = path.get(0);
+        int numBoxes = curr.getMovingBoxes().size();
+        for(int k = 1; k < path.size(); k++) {
+            Vertex next = path.get(k);
+            int moved = movedCoordinate(curr, next);
+            if(moved == -1) continue;
+            if(moved == -2) {
+                throw new IllegalArgumentException("configurations " + (k - 1) + " and " + k
+                        + " of the path differ in more than one coordinate");
+            }
+            int i = moved >> 1;
+            if(i < numBoxes) {
+                Box box = next.getMovingBoxes().get(i);
+                curr = curr.newVertexSingleMove(i, new MovingBox(
+                        new Point2D.Double(box.getPos().getX(), box.getPos().getY()), box.getWidth()));
+            } else {
+                Box box = next.getMovingObstacles().get(i - numBoxes);
+                curr = curr.newVertexSingleMove(i - numBoxes, new MovingObstacle(
+                        new Point2D.Double(box.getPos().getX(), box.getPos().getY()), box.getWidth()));
+            }
+        }
+        return curr;
+    }
+}
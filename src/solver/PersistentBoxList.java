@@ -0,0 +1,97 @@
+package solver;
+
+import problem.Box;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of boxes stored as a 32-way trie. Replacing one box with
+ * {@link #with(int, Box)} copies only the path from the root to that box, so
+ * a child Vertex shares everything but one small leaf (plus the root for
+ * scenes with more than 32 objects) with its parent.
+ *
+ * Reads descend one level per 32x growth in size, which is a single array
+ * access for scenes up to 32 objects and two up to 1024.
+ */
+final class PersistentBoxList extends AbstractList<Box> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final int size;
+    private final int shift; // shift of the root level, 0 if the root is a leaf
+    private final Object[] root;
+
+    private PersistentBoxList(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    /** Copy the given boxes into a new persistent list */
+    static PersistentBoxList of(List<Box> boxes) {
+        if(boxes instanceof PersistentBoxList) {
+            return (PersistentBoxList) boxes;
+        }
+        int size = boxes.size();
+        int shift = 0;
+        while((long) size > (long) WIDTH << shift) {
+            shift += BITS;
+        }
+        return new PersistentBoxList(size, shift, build(boxes, 0, size, shift));
+    }
+
+    private static Object[] build(List<Box> boxes, int from, int to, int shift) {
+        if(shift == 0) {
+            return boxes.subList(from, to).toArray();
+        }
+        int span = 1 << shift;
+        Object[] node = new Object[(to - from + span - 1) / span];
+        for(int i = 0; i < node.length; i++) {
+            int start = from + i * span;
+            node[i] = build(boxes, start, Math.min(to, start + span), shift - BITS);
+        }
+        return node;
+    }
+
+    @Override
+    public Box get(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Object[] node = root;
+        for(int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (Box) node[index & MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a list equal to this one except that index holds box,
+     * this list is left untouched
+     */
+    PersistentBoxList with(int index, Box box) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new PersistentBoxList(size, shift, assoc(root, shift, index, box));
+    }
+
+    private static Object[] assoc(Object[] node, int shift, int index, Box box) {
+        Object[] copy = node.clone();
+        if(shift == 0) {
+            copy[index & MASK] = box;
+        } else {
+            int slot = (index >>> shift) & MASK;
+            copy[slot] = assoc((Object[]) node[slot], shift - BITS, index, box);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,29 @@
+package solver;
+
+import problem.ProblemSpec;
+
+/** Which roadmap searches the box configurations, named as on the command line */
+public enum Planner {
+    rrt,     // RoadmapForBox
+    bidi,    // BidirectionalRoadmap, trees from the start and the goal
+    anytime, // AnytimeRoadmap, keeps improving its solution until stopped
+    lattice; // LatticeRoadmap, A* over whole PRIMITIVE steps
+
+    /**
+     * @return a new roadmap of this kind, lattice ignores seed, strategy
+     * and cache and anytime keeps its tree on the heap
+     */
+    public Roadmap create(ProblemSpec ps, long seed, SamplingStrategy strategy, RoadmapCache cache,
+                          boolean offHeap) {
+        switch(this) {
+            case bidi:
+                return new BidirectionalRoadmap(ps, seed, strategy, cache, offHeap);
+            case anytime:
+                return new AnytimeRoadmap(ps, seed, strategy, cache);
+            case lattice:
+                return new LatticeRoadmap(ps);
+            default:
+                return new RoadmapForBox(ps, seed, strategy, cache, offHeap);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package solver;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, phase timers and a tree size histogram of one solve, safe to
+ * update from the many threads of its planners. Every RoadmapForBox counts
+ * into the metrics it was given, a fresh one unless setMetrics shares one.
+ *
+ * Metrics are off unless the JVM runs with -Dsolver.metrics=true. ENABLED is
+ * a static final, so with metrics off the JIT drops every update along with
+ * the System.nanoTime() calls of the timers, and no counters are allocated.
+ * With -Dsolver.jfr=true every planner run is also committed as a JFR
+ * event, see SolveEvent.
+ *
+ * ParallelSolver hands the metrics of a solve back with its result, and its
+ * main adds the shortcut and robot phases before printing them to stderr.
+ */
+public final class PlannerMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("solver.metrics");
+    public static final boolean JFR = Boolean.getBoolean("solver.jfr");
+
+    /** Things that are counted */
+    public enum Counter {
+        samples,             // moves drawn by the sampler
+        staticallyBlocked,   // samples ruled out by the static raster
+        visitedSamples,      // samples already in the map
+        collidingSamples,    // samples whose moved object overlaps another
+        samplerExhausted,    // newVertex gave up after MAX_ITER draws
+        insertFailed,        // InsertFailedException thrown
+        extensions,          // single moves tried by findNextConfigOn
+        clippedExtensions,   // extensions stopped short by a blocking edge
+        blockedExtensions,   // extensions that could not move at all
+        visitedExtensions,   // extensions dropped because the map holds them
+        stateChecks,         // collisionExist(Vertex)
+        boxMoveChecks,       // collisionExist(int, Vertex, MovingBox)
+        obstacleMoveChecks,  // collisionExist(int, Vertex, MovingObstacle)
+        movedChecks,         // CollisionChecker.movedCollides
+        freeTravelScans,     // CollisionChecker.freeTravel
+        connectGoalAttempts, // tryConnectGoal
+        connectGoalSuccesses
+    }
+
+    /** Parts of a solve that are timed */
+    public enum Phase {
+        sample,      // newVertex
+        nearest,     // findNearest
+        extend,      // findNextConfigOn from addNewVertex
+        connectGoal, // tryConnectGoal
+        shortcut,    // PathShortcutter.shorten
+        robot        // RobotPlanner.plan
+    }
+
+    /** Bucket i counts trees of 2^i to 2^(i+1) - 1 vertices */
+    static final int BUCKETS = 32;
+
+    private final LongAdder[] counters = adders(Counter.values().length);
+    private final LongAdder[] phaseNanos = adders(Phase.values().length);
+    private final LongAdder[] phaseCalls = adders(Phase.values().length);
+    private final LongAdder[] treeSizes = adders(BUCKETS);
+
+    /** @return n counters, none if metrics are off */
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[ENABLED ? n : 0];
+        for(int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    void count(Counter counter) {
+        if(ENABLED) {
+            counters[counter.ordinal()].increment();
+        }
+    }
+
+    /** @return the start of a phase, pass it to stop */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    void stop(Phase phase, long start) {
+        if(ENABLED) {
+            phaseNanos[phase.ordinal()].add(System.nanoTime() - start);
+            phaseCalls[phase.ordinal()].increment();
+        }
+    }
+
+    /** Record the size a tree had when its planner stopped */
+    void treeSize(int size) {
+        if(ENABLED) {
+            treeSizes[31 - Integer.numberOfLeadingZeros(Math.max(1, size))].increment();
+        }
+    }
+
+    public long get(Counter counter) {
+        return ENABLED ? counters[counter.ordinal()].sum() : 0L;
+    }
+
+    public long nanos(Phase phase) {
+        return ENABLED ? phaseNanos[phase.ordinal()].sum() : 0L;
+    }
+
+    public long calls(Phase phase) {
+        return ENABLED ? phaseCalls[phase.ordinal()].sum() : 0L;
+    }
+
+    /**
+     * @return every counter, the calls and milliseconds of every phase and
+     * the non-empty buckets of the tree size histogram, keyed by their lower
+     * bound, as one JSON object
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"enabled\":").append(ENABLED).append(",\"counters\":{");
+        for(Counter counter : Counter.values()) {
+            if(counter.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(counter.name()).append("\":").append(get(counter));
+        }
+        json.append("},\"phases\":{");
+        for(Phase phase : Phase.values()) {
+            if(phase.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(phase.name()).append("\":{\"calls\":")
+                    .append(calls(phase))
+                    .append(",\"ms\":").append(String.format(Locale.ROOT, "%.3f", nanos(phase) / 1e6)).append('}');
+        }
+        json.append("},\"treeSizes\":{");
+        boolean first = true;
+        for(int i = 0; i < treeSizes.length; i++) {
+            long n = treeSizes[i].sum();
+            if(n == 0) continue;
+            if(!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(1L << i).append("\":").append(n);
+        }
+        return json.append("}}").toString();
+    }
+}
@@ -0,0 +1,67 @@
+package solver;
+
+/**
+ * Identifies a configuration up to QUANTUM: two configurations are the same
+ * key when every coordinate of theirs rounds to the same multiple of
+ * QUANTUM. The hash of a key is the sum of term over its coordinates, which
+ * Vertex keeps up to date in O(1) per move.
+ *
+ * Keys are not objects, RoadmapForBox maps the hash of a vertex to its node
+ * in a LongIndexMap and tells keys with the same hash apart with sameKey.
+ */
+final class QuantizedKey {
+    static final double QUANTUM = RoadmapForBox.PRIMITIVE;
+
+    private QuantizedKey() {
+    }
+
+    /** The multiple of QUANTUM that coordinate value is closest to */
+    static long cell(double value) {
+        return Math.round(value / QUANTUM);
+    }
+
+    /** Hash contribution of coordinate d at value, summed over all coordinates */
+    static long term(int d, double value) {
+        return term(d, cell(value));
+    }
+
+    /** Hash contribution of coordinate d in cell, for keys that are already cells */
+    static long term(int d, long cell) {
+        long z = cell * 0x9e3779b97f4a7c15L + d;
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /** @return the hash of the key of v, never Long.MIN_VALUE so it fits a LongIndexMap */
+    static long hash(Vertex v) {
+        long h = v.quantizedHash();
+        return h == Long.MIN_VALUE ? 0 : h;
+    }
+
+    /** @return true if a and b have the same key */
+    static boolean sameKey(Vertex a, Vertex b) {
+        if(a.dimension() != b.dimension()) {
+            return false;
+        }
+        for(int d = 0; d < a.dimension(); d++) {
+            if(cell(a.coordinate(d)) != cell(b.coordinate(d))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return true if v has the same key as the given point */
+    static boolean sameKey(Vertex v, KdTree.Points points, int point) {
+        if(v.dimension() != points.dimension()) {
+            return false;
+        }
+        for(int d = 0; d < v.dimension(); d++) {
+            if(cell(v.coordinate(d)) != cell(points.coordinate(point, d))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
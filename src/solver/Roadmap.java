@@ -1,5 +1,8 @@
 package solver;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 public interface Roadmap {
     /**
      * Add the sample or derived Vertex to the current map
@@ -14,5 +17,55 @@ public interface Roadmap {
      */
     public Vertex newVertex();
 
+    /**
+     * @return the Vertex in which every box is at its goal, its parent chain
+     * leads back to the initial configuration. null until the goal is reached
+     */
+    public Vertex getSolution();
+
+    /**
+     * @return the vertex of the map whose boxes are closest to their goals,
+     * its parent chain leads back to the initial configuration
+     */
+    public Vertex getClosest();
+
+    /**
+     * Grow the map on the calling thread until it reaches the goal or token
+     * asks to stop, the planner checks the token between and inside its
+     * iterations
+     */
+    public SolveResult grow(CancellationToken token);
+
+    /**
+     * grow on a thread of its own with a fresh token that stops once budget
+     * has passed since the planner started
+     */
+    public default CompletableFuture<SolveResult> solve(Duration budget) {
+        return solve(CancellationToken.notStarted(budget));
+    }
+
+    /**
+     * grow on a thread of its own, a token from CancellationToken.notStarted
+     * starts its budget once the thread runs. Cancelling the token completes
+     * the future with the closest vertex reached, cancelling the future
+     * stops the planner and drops its result. The map must not be used by
+     * anything else until the future completes.
+     */
+    public default CompletableFuture<SolveResult> solve(CancellationToken token) {
+        CompletableFuture<SolveResult> future = CompletableFuture.supplyAsync(() -> {
+            token.start();
+            return grow(token);
+        }, SolveThreads.EXECUTOR);
+        future.whenComplete((result, e) -> {
+            if(future.isCancelled()) {
+                token.cancel();
+            }
+        });
+        return future;
+    }
+
+    /** @return the number of vertices or states the map holds */
+    public int size();
+
     public void printTrace();
 }
@@ -0,0 +1,267 @@
+package solver;
+
+import problem.Box;
+import problem.ProblemSpec;
+import problem.StaticObstacle;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The free space structures that only depend on the static obstacles, the
+ * robot width and the widths of the moving objects: the StaticRaster of
+ * every object width and the StaticLattice of the robot planner.
+ *
+ * A cache opened on a directory loads the file named after the hash of that
+ * layout, if a previous run saved one, so problems that share the layout
+ * and only differ in where the boxes start and end skip building them.
+ * Structures built during the run are written back by save().
+ *
+ * File layout, big-endian:
+ * <pre>
+ * int magic, int version, long key, int sections
+ * per section: int tag, int length in bytes, payload
+ * RASTER  payload: double width, int resolution, int words, long[words]
+ * LATTICE payload: int n, double step, double half, int words, 3 x long[words]
+ * </pre>
+ * Unknown tags are skipped, a file with another magic, version or key is
+ * ignored.
+ */
+public final class RoadmapCache {
+    private static final int MAGIC = 0x524d4331; // "RMC1"
+    private static final int VERSION = 3;
+    private static final int RASTER = 1;
+    private static final int LATTICE = 2;
+    /** Bytes before the first section */
+    private static final int HEADER = 20;
+    /** Largest raster resolution or lattice side a file may claim */
+    private static final int MAX_RESOLUTION = 1 << 14;
+
+    private final ProblemSpec ps;
+    private final long key;
+    private final Path file; // null for a cache that only lives in memory
+
+    private final List<StaticRaster> rasters = new ArrayList<>();
+    private StaticLattice lattice;
+    private boolean dirty;
+
+    private RoadmapCache(ProblemSpec ps, Path file) {
+        this.ps = ps;
+        this.key = keyOf(ps);
+        this.file = file;
+    }
+
+    /** A cache that is never written to disk */
+    public static RoadmapCache inMemory(ProblemSpec ps) {
+        return new RoadmapCache(ps, null);
+    }
+
+    /**
+     * Open the cache for the layout of ps in dir, loading what an earlier
+     * run saved there
+     */
+    public static RoadmapCache open(Path dir, ProblemSpec ps) throws IOException {
+        Files.createDirectories(dir);
+        RoadmapCache cache = new RoadmapCache(ps, dir.resolve(String.format("%016x.rmc", keyOf(ps))));
+        if(Files.isRegularFile(cache.file)) {
+            cache.load();
+        }
+        return cache;
+    }
+
+    /** @return the hash of everything the cached structures depend on */
+    static long keyOf(ProblemSpec ps) {
+        long h = mix(VERSION);
+        for(StaticObstacle obstacle : ps.getStaticObstacles()) {
+            Rectangle2D rect = obstacle.getRect();
+            h = mix(h ^ Double.doubleToLongBits(rect.getMinX()));
+            h = mix(h ^ Double.doubleToLongBits(rect.getMinY()));
+            h = mix(h ^ Double.doubleToLongBits(rect.getMaxX()));
+            h = mix(h ^ Double.doubleToLongBits(rect.getMaxY()));
+        }
+        h = mix(h ^ Double.doubleToLongBits(ps.getRobotWidth()));
+        for(Box box : ps.getMovingObstacles()) {
+            h = mix(h ^ Double.doubleToLongBits(box.getWidth()));
+        }
+        return h;
+    }
+
+    /** The finaliser of SplittableRandom, spreads every input bit */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /** @return the raster for squares of the given width, built on first use */
+    synchronized StaticRaster raster(double width) {
+        for(StaticRaster raster : rasters) {
+            if(raster.getWidth() == width && raster.getResolution() == StaticRaster.DEFAULT_RESOLUTION) {
+                return raster;
+            }
+        }
+        StaticRaster raster = new StaticRaster(ps.getStaticObstacles(), width, StaticRaster.DEFAULT_RESOLUTION);
+        rasters.add(raster);
+        dirty = true;
+        return raster;
+    }
+
+    /** @return the static lattice of the robot planner, built on first use */
+    synchronized StaticLattice lattice() {
+        if(lattice == null || !lattice.matches(ps.getRobotWidth(), RobotPlanner.LATTICE_STEP)) {
+            lattice = new StaticLattice(ps.getStaticObstacles(), ps.getRobotWidth(), RobotPlanner.LATTICE_STEP);
+            dirty = true;
+        }
+        return lattice;
+    }
+
+    /** @return true if something was built that save() has not written yet */
+    synchronized boolean hasUnsavedChanges() {
+        return dirty;
+    }
+
+    /** Write the structures back if anything was built since the cache was opened */
+    public synchronized void save() throws IOException {
+        if(file == null || !dirty) {
+            return;
+        }
+        int size = HEADER;
+        for(StaticRaster raster : rasters) {
+            size += 8 + rasterLength(raster);
+        }
+        if(lattice != null) {
+            size += 8 + latticeLength(lattice);
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(VERSION).putLong(key).putInt(rasters.size() + (lattice != null ? 1 : 0));
+        for(StaticRaster raster : rasters) {
+            out.putInt(RASTER).putInt(rasterLength(raster));
+            out.putDouble(raster.getWidth()).putInt(raster.getResolution()).putInt(raster.getBits().length);
+            putLongs(out, raster.getBits());
+        }
+        if(lattice != null) {
+            long[][] bits = lattice.getBits();
+            out.putInt(LATTICE).putInt(latticeLength(lattice));
+            out.putInt(lattice.getN()).putDouble(lattice.getStep()).putDouble(lattice.getHalf())
+                    .putInt(bits[0].length);
+            for(long[] b : bits) {
+                putLongs(out, b);
+            }
+        }
+        out.flip();
+
+        // write aside and move into place so readers never see half a file
+        Path tmp = Files.createTempFile(file.getParent(), "rmc", ".tmp");
+        try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            while(out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private static int rasterLength(StaticRaster raster) {
+        return 16 + 8 * raster.getBits().length;
+    }
+
+    private static int latticeLength(StaticLattice lattice) {
+        return 24 + 3 * 8 * lattice.getBits()[0].length;
+    }
+
+    private static void putLongs(ByteBuffer out, long[] values) {
+        out.asLongBuffer().put(values);
+        out.position(out.position() + 8 * values.length);
+    }
+
+    private static long[] getLongs(ByteBuffer in, int words) {
+        long[] values = new long[words];
+        LongBuffer view = in.asLongBuffer();
+        view.get(values);
+        in.position(in.position() + 8 * words);
+        return values;
+    }
+
+    /**
+     * Read the file, a file that does not match its header or the sizes of
+     * its sections is a miss like a stale one, so a truncated or corrupt
+     * file makes the solver start cold instead of failing
+     */
+    private void load() throws IOException {
+        ByteBuffer in;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size < HEADER || size > Integer.MAX_VALUE) {
+                return;
+            }
+            in = ByteBuffer.allocate((int) size);
+            while(in.hasRemaining()) {
+                if(channel.read(in) < 0) {
+                    return; // shorter than it said, another run is replacing it
+                }
+            }
+            in.flip();
+        }
+        if(in.remaining() < HEADER || in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != key) {
+            return; // stale or foreign, rebuilt and overwritten on save
+        }
+        List<StaticRaster> loadedRasters = new ArrayList<>();
+        StaticLattice loadedLattice = null;
+        int sections = in.getInt();
+        for(int s = 0; s < sections; s++) {
+            if(in.remaining() < 8) {
+                return;
+            }
+            int tag = in.getInt();
+            int length = in.getInt();
+            if(length < 0 || length > in.remaining()) {
+                return;
+            }
+            int end = in.position() + length;
+            if(tag == RASTER) {
+                if(length < 16) {
+                    return;
+                }
+                double width = in.getDouble();
+                int resolution = in.getInt();
+                int words = in.getInt();
+                if(resolution <= 0 || resolution > MAX_RESOLUTION || words != wordsFor((long) resolution * resolution)
+                        || length != 16 + 8L * words) {
+                    return;
+                }
+                loadedRasters.add(new StaticRaster(width, resolution, getLongs(in, words)));
+            } else if(tag == LATTICE) {
+                if(length < 24) {
+                    return;
+                }
+                int n = in.getInt();
+                double step = in.getDouble();
+                double half = in.getDouble();
+                int words = in.getInt();
+                if(n <= 0 || n > MAX_RESOLUTION || words != wordsFor(2L * n * n) || length != 24 + 24L * words) {
+                    return;
+                }
+                loadedLattice = new StaticLattice(n, step, half,
+                        getLongs(in, words), getLongs(in, words), getLongs(in, words));
+            }
+            in.position(end);
+        }
+        rasters.addAll(loadedRasters);
+        lattice = loadedLattice;
+    }
+
+    /** @return the number of longs holding bits bits */
+    private static int wordsFor(long bits) {
+        return (int) ((bits + 63) >>> 6);
+    }
+}
@@ -7,103 +7,112 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.*;
 
+import solver.PlannerMetrics.Counter;
+import solver.PlannerMetrics.Phase;
+
 import static java.lang.Math.abs;
 
 //TODO: there is a goal state for every single box you can't just rearrange them
 //TODO: getPos() give the bottom-left corner, not center
-class ChangeLog {
-    boolean boxType; // true for movingBox, false for moving obstacles
-    boolean indexType;
-
-    int boxIndex;
-    int nodeIndex = -1;
-    double newpos;
-
-    final Box oldBox; // parent.get(boxIndex)
-    //Box newBox;
-
-    ChangeLog(List<Vertex> map) {
-        Random r = new Random(Calendar.getInstance().getTimeInMillis());
-        boxType = r.nextFloat() < 0.5;
-        indexType = r.nextFloat() < 0.5;
-        nodeIndex = r.nextInt(map.size());
-
-        Vertex parent = map.get(nodeIndex);
-        List<Box> movingBoxes = parent.getMovingBoxes();
-        List<Box> movingObs = parent.getMovingObstacles();
-
-        double width;
-        // random chose from boxes and obstacles
-        if(boxType) {
-            boxIndex = r.nextInt(movingBoxes.size());// move boxes
-            oldBox = movingBoxes.get(boxIndex);
-            width = oldBox.getWidth();
-        } else {
-            boxIndex = r.nextInt(movingObs.size());// move boxes
-            oldBox = movingObs.get(boxIndex);
-            width = oldBox.getWidth();
-        }
-        // double [0, 1 - width]
-        newpos = r.nextDouble() * (1 - width);
-    }
-
-    ChangeLog(ChangeLog oldLog, double newpos) {
-        this.indexType = oldLog.indexType;
-        this.boxType = oldLog.boxType; // not going to chang it
-        this.oldBox = oldLog.oldBox;
-        this.nodeIndex = oldLog.nodeIndex;
-        this.boxIndex = oldLog.boxIndex;
-        this.newpos = newpos;
-    }
-
-    ChangeLog(int index, MovingBox ob, MovingBox nb) {
-        this.boxIndex = index;
-        this.boxType = true;
-        this.oldBox = ob;
-        if(abs(nb.getPos().getY() - ob.getPos().getY()) > 0.001) {
-            this.newpos = nb.getPos().getY();
-            this.indexType = false;
-        } else {
-            this.newpos = nb.getPos().getX();
-            this.indexType = true;
-        }
-    }
-
-    ChangeLog(int index, MovingObstacle ob, MovingObstacle nb) {
-        this.boxIndex = index;
-        this.boxType = false;
-        this.oldBox = ob;
-        if(abs(nb.getPos().getY() - ob.getPos().getY()) > 0.001) {
-            this.newpos = nb.getPos().getY();
-            this.indexType = false;
-        } else {
-            this.newpos = nb.getPos().getX();
-            this.indexType = true;
-        }
-    }
-}
-
 public class RoadmapForBox implements Roadmap {
 
     private ProblemSpec ps;
     Vertex goal;
-    List<Vertex> map;
+    StoredTree map;
     //private int boxIndex;
     static final double PRIMITIVE = 0.01; // distance of primitive move
     static final double MAX_EDGE_LENGTH = 0.5;
+    static final double CLEARANCE = 2 * PRIMITIVE; // gap left in front of a blocked move
     static final double CLOSE_HEURISTIC = 0.5;
     static final int MAX_ITER = 10000;
 
     ChangeLog cLog;
+    private CollisionChecker checker;
+    private KdTree nearestIndex;
+    // quantised configurations of map to their node, so near duplicates are rejected
+    private LongIndexMap visited;
+    private Sampler sampler;
+    private boolean offHeap;
+    Vertex solution;
+    // the node of the map with the smallest heuristic
+    private int closest;
+    private double closestHeuristic = Double.POSITIVE_INFINITY;
+    // whether the goal was tried from the root, see addNewVertex
+    private boolean rootConnected;
+    // checked by the sampling and extension loops, set for the length of grow
+    CancellationToken token = CancellationToken.NONE;
+    PlannerMetrics metrics = new PlannerMetrics();
 
     public RoadmapForBox(ProblemSpec ps) {
+        this(ps, Calendar.getInstance().getTimeInMillis());
+    }
+
+    /**
+     * @param seed seed of the random stream used for sampling, the same
+     * seed always grows the same roadmap
+     */
+    public RoadmapForBox(ProblemSpec ps, long seed) {
+        this(ps, seed, SamplingStrategy.uniform);
+    }
+
+    /**
+     * @param seed seed of the sampler, the same seed and strategy always
+     * grow the same roadmap
+     * @param strategy how samples are drawn
+     */
+    public RoadmapForBox(ProblemSpec ps, long seed, SamplingStrategy strategy) {
+        this(ps, seed, strategy, RoadmapCache.inMemory(ps));
+    }
+
+    /** @param cache static free space structures shared with other planners */
+    public RoadmapForBox(ProblemSpec ps, long seed, SamplingStrategy strategy, RoadmapCache cache) {
+        this(ps, seed, strategy, cache, false);
+    }
+
+    /**
+     * @param offHeap keep the tree in direct buffers outside the heap,
+     * see TreeStore
+     */
+    public RoadmapForBox(ProblemSpec ps, long seed, SamplingStrategy strategy, RoadmapCache cache,
+                         boolean offHeap) {
+        this(ps, seed, strategy, cache, offHeap, false);
+    }
+
+    /** @param retain keep every vertex of the map as an object, see StoredTree */
+    RoadmapForBox(ProblemSpec ps, long seed, SamplingStrategy strategy, RoadmapCache cache,
+                  boolean offHeap, boolean retain) {
         this.ps = ps;
+        this.offHeap = offHeap;
+        checker = new CollisionChecker(ps, cache);
         initGoal();
-        map = new ArrayList<>();
-        map.add(new Vertex(ps.getMovingBoxes(), ps.getMovingObstacles()));
+        sampler = Sampler.create(strategy, goal, seed);
+        Vertex root = new Vertex(ps.getMovingBoxes(), ps.getMovingObstacles());
+        root.heuristic(goal); // every descendant updates it from its parent
+        map = newTree(root.dimension(), retain);
+        nearestIndex = new KdTree(map);
+        visited = new LongIndexMap(1024);
+        addToMap(root);
         cLog = null;
     }
 
+    /** Count into metrics from now on, together with any other planner given the same */
+    void setMetrics(PlannerMetrics metrics) {
+        this.metrics = metrics;
+        checker.metrics = metrics;
+    }
+
+    /** @return the exception to throw when no vertex can be added, counted in the metrics */
+    InsertFailedException insertFailed() {
+        metrics.count(Counter.insertFailed);
+        return new InsertFailedException();
+    }
+
+    /** An empty tree for vertices of the given dimension, stored like the map */
+    StoredTree newTree(int dimension, boolean retain) {
+        TreeStore store = offHeap ? TreeStore.direct(dimension) : TreeStore.onHeap(dimension);
+        return new StoredTree(store, retain);
+    }
+
     private void initGoal() {
         List<Point2D> points = ps.getMovingBoxEndPositions();
         List<Box> boxes = new ArrayList<>();
@@ -126,21 +135,32 @@ public class RoadmapForBox implements Roadmap {
     @Override
     public boolean addNewVertex(Vertex v) throws InsertFailedException {
         if(v == null) {
-            throw new InsertFailedException();
+            throw insertFailed();
+        }
+        // the heuristic sums over the boxes, many boxes each a short push
+        // from their goal stay above CLOSE_HEURISTIC from the start
+        if(!rootConnected) {
+            rootConnected = true;
+            if(tryConnectGoal(map.get(0))) {
+                return true;
+            }
         }
         Vertex near;
         Vertex newNode;
-        // naive method, time: O(n)
+        // KD-tree query, sub-linear in the size of the map
         near = findNearest(v);
         // naive method, try randomly and check
         if(near == null) {
-            throw new InsertFailedException();
+            throw insertFailed();
         }
 
+        long start = PlannerMetrics.start();
         newNode = findNextConfigOn(near, v);
+        metrics.stop(Phase.extend, start);
 
-        // append new node as a child node of a predecessor
-        if(newNode != null) {
+        // append new node as a child node of a predecessor, unless the
+        // map already holds the same configuration up to PRIMITIVE
+        if(newNode != null && !isVisitedExtension(newNode)) {
             appendVertex(near, newNode);
             if(newNode.heuristic(goal) < CLOSE_HEURISTIC) {
                 return tryConnectGoal(newNode);
@@ -151,154 +171,334 @@ public class RoadmapForBox implements Roadmap {
     }
 
 
-    /** Find a nearest one in the map, time O(n) */
-    /*
-    private Vertex findNearest(Vertex v) {
-        Vertex res = null;
-        double minDis = Double.MAX_VALUE;
-        for(Vertex vertex : map) {
-            if(vertex.distanceTo(v) < minDis) {
-                minDis = vertex.distanceTo(v);
-                res = vertex;
-            }
-        }
-        return res;
+    /** Find the nearest one in the map */
+    Vertex findNearest(Vertex v) {
+        long start = PlannerMetrics.start();
+        int node = nearestIndex.nearest(v);
+        metrics.stop(Phase.nearest, start);
+        return node < 0 ? null : map.get(node);
     }
-    */
 
-    /** Use node in the changelog as the nearest */
-    private Vertex findNearest(Vertex v) {
-        if(v.getLog() == null) return null;
-        else return v.getParent();
+    /** Add the vertices of the map within radius of v to out */
+    void findWithin(Vertex v, double radius, List<Vertex> out) {
+        nearestIndex.within(v, radius, node -> out.add(map.get(node)));
     }
 
     private void appendVertex(@NotNull Vertex predecessor, Vertex children) {
         children.setParent(predecessor);
-        map.add(children);
+        addToMap(children);
+    }
+
+    void addToMap(Vertex v) {
+        map.add(v);
+        nearestIndex.insert(v.node);
+        visited.put(QuantizedKey.hash(v), v.node);
+        if(v.heuristic(goal) < closestHeuristic) {
+            closestHeuristic = v.heuristic(goal);
+            closest = v.node;
+        }
+    }
+
+    /** @return true if the map holds a configuration within PRIMITIVE of v in every coordinate */
+    boolean isVisited(Vertex v) {
+        int node = visited.get(QuantizedKey.hash(v));
+        return node >= 0 && QuantizedKey.sameKey(v, map, node);
+    }
+
+    /** isVisited for the result of an extension, counted in PlannerMetrics */
+    boolean isVisitedExtension(Vertex v) {
+        if(isVisited(v)) {
+            metrics.count(Counter.visitedExtensions);
+            return true;
+        }
+        return false;
     }
 
 
     /** Find a new Configuration on line segment (a, b),
      * where a is the start position(i.e. try to reach from a), and b
      * is the end position*/
-    private Vertex findNextConfigOn(Vertex a, Vertex b) {
-        if(a == b.getParent()) {
+    Vertex findNextConfigOn(Vertex a, Vertex b) {
+        if(b.isChildOf(a)) {
+            metrics.count(Counter.extensions);
             ChangeLog log = b.getLog();
-            double distance;
-            if(log.indexType) {
-                distance = log.newpos - log.oldBox.getPos().getX();
-            } else {
-                distance = log.newpos - log.oldBox.getPos().getY();
+            Box oldBox = log.oldBox;
+            double from = log.indexType ? oldBox.getPos().getX() : oldBox.getPos().getY();
+            double travel = log.newpos - from;
+
+            // go as far towards b as the nearest blocking edge allows
+            int id = log.boxType ? checker.boxId(log.boxIndex) : checker.obstacleId(log.boxIndex);
+            double free = abs(checker.freeTravel(id, a, oldBox, log.indexType, travel));
+            if(free < abs(travel)) {
+                // stop short of the blocking edge, the robot needs room
+                // to get between the object and whatever blocked it
+                free -= CLEARANCE;
+                metrics.count(Counter.clippedExtensions);
+            }
+            double distance = Math.min(free, MAX_EDGE_LENGTH);
+            if(distance <= PRIMITIVE) {
+                metrics.count(Counter.blockedExtensions);
+                return null; // nothing found
+            }
+            if(distance == abs(travel)) {
+                return a.newVertexSingleMove(new ChangeLog(log, log.newpos), log.boxType
+                        ? b.getMovingBoxes().get(log.boxIndex)
+                        : b.getMovingObstacles().get(log.boxIndex));
             }
-            distance = abs(distance);
 
-            Box oldBox = log.oldBox;
-            Box newBox;
-            if(log.boxType) {
-                newBox = b.getMovingBoxes().get(log.boxIndex);
-            } else {
-                newBox = b.getMovingObstacles().get(log.boxIndex);
+            double newpos = travel > 0 ? from + distance : from - distance;
+            Point2D newPoint = log.indexType
+                    ? new Point2D.Double(newpos, oldBox.getPos().getY())
+                    : new Point2D.Double(oldBox.getPos().getX(), newpos);
+            Box newBox = log.boxType
+                    ? new MovingBox(newPoint, oldBox.getWidth())
+                    : new MovingObstacle(newPoint, oldBox.getWidth());
+            return a.newVertexSingleMove(new ChangeLog(log, newpos), newBox);
+        } else {
+            // b is not a single move away from a, head for b along the
+            // axis of the object that differs the most
+            Vertex target = singleMoveTowards(a, b);
+            if(target == null) {
+                return null;
             }
+            return findNextConfigOn(a, target);
+        }
+    }
 
-            while(distance > PRIMITIVE) { // TODO: condition
-                if(!collisionExist(log, a, newBox) && distance < MAX_EDGE_LENGTH) {
-                    double newpos = log.indexType ? newBox.getPos().getX() : newBox.getPos().getY();
-                    log = new ChangeLog(log, newpos);
-                    return a.newVertexSingleMove(log, newBox);
-                } else {
-                    if(log.boxType) {
-                        newBox = new MovingBox(new Point2D.Double(
-                                (oldBox.getPos().getX() + newBox.getPos().getX()) / 2,
-                                (oldBox.getPos().getY() + newBox.getPos().getY()) / 2
-                        ), newBox.getWidth()) {};
-                    } else {
-                        newBox = new MovingObstacle(new Point2D.Double(
-                                (oldBox.getPos().getX() + newBox.getPos().getX()) / 2,
-                                (oldBox.getPos().getY() + newBox.getPos().getY()) / 2
-                        ), newBox.getWidth()) {};
-                    }
-
-                    distance /= 2;
-                }
+    /**
+     * Move the single object of a that is furthest from its position in b,
+     * along the axis where it differs the most
+     * @return the child of a after the move, or null if a and b are equal
+     */
+    private Vertex singleMoveTowards(Vertex a, Vertex b) {
+        int dims = Math.min(a.dimension(), b.dimension());
+        int best = -1;
+        double bestDiff = 0.0;
+        for(int d = 0; d < dims; d++) {
+            double diff = abs(a.coordinate(d) - b.coordinate(d));
+            if(diff > bestDiff) {
+                bestDiff = diff;
+                best = d;
             }
-            return null; // nothing found
+        }
+        if(best == -1) {
+            return null;
+        }
+
+        int index = best >> 1;
+        boolean alongX = (best & 1) == 0;
+        int numBoxes = a.getMovingBoxes().size();
+        boolean boxType = index < numBoxes;
+        Box oldBox = boxType ? a.getMovingBoxes().get(index)
+                : a.getMovingObstacles().get(index - numBoxes);
+        Point2D newPoint = alongX
+                ? new Point2D.Double(b.coordinate(best), oldBox.getPos().getY())
+                : new Point2D.Double(oldBox.getPos().getX(), b.coordinate(best));
+        if(boxType) {
+            return a.newVertexSingleMove(index, new MovingBox(newPoint, oldBox.getWidth()));
         } else {
-            return null; // TODO: not implemented
+            return a.newVertexSingleMove(index - numBoxes,
+                    new MovingObstacle(newPoint, oldBox.getWidth()));
+        }
+    }
+
+    /**
+     * Try to push every box straight to its own goal, one box after another,
+     * each along an L shaped route (x first or y first)
+     * @return true if all boxes reached their goal, the path is then added
+     * to the map and the last vertex becomes the solution
+     */
+    boolean tryConnectGoal(Vertex v) {
+        metrics.count(Counter.connectGoalAttempts);
+        long start = PlannerMetrics.start();
+        boolean connected = connectGoal(v);
+        metrics.stop(Phase.connectGoal, start);
+        if(connected) {
+            metrics.count(Counter.connectGoalSuccesses);
         }
+        return connected;
     }
 
-    private boolean tryConnectGoal(Vertex v) {
-        List<Box> movingBoxes = v.getMovingBoxes();
-        List<Box> goalState = new LinkedList<>(goal.getMovingBoxes());
+    private boolean connectGoal(Vertex v) {
+        List<Box> goalState = goal.getMovingBoxes();
         LinkedList<Vertex> feasible = new LinkedList<>();
-        feasible.add(v);
+        Vertex currV = v;
 
-        for(Box currBox : movingBoxes) {
+        for(int index = 0; index < goalState.size(); index++) {
+            if(token.stopRequested()) {
+                return false;
+            }
             // the last Vertex in the list included the last successful box movement
             // this method only keep track of boxes, so while some of the boxes
             // in currV has been changed, the rest remains where they are.
-            Vertex currV = feasible.getLast();
-            //Greedy method, choose the one that has minimum distance
-            Box target = null;
-            double minv = Double.MAX_VALUE;
-            int index = -1;
-            for(Box goalBox : goalState) {
-                if(currBox.getPos().distance(goalBox.getPos()) < minv) {
-                    minv = currBox.getPos().distance(goalBox.getPos());
-                    target = goalBox;
-                }
-                index++;
-            }
-
-            MovingBox inter = new MovingBox(new Point2D.Double(
-                    currBox.getPos().getX(),
-                    target.getPos().getY()
-            ), currBox.getWidth());
-            Vertex interV = currV.newVertexSingleMove(index, inter);
-
-            boolean flag1 = true, flag2 = true;
-            if(collisionExist(index, currV, inter) ||
-                    collisionExist(index, interV, (MovingBox) target)) {
-                flag1 = false; // no way from this side
+            MovingBox target = (MovingBox) goalState.get(index);
+            Box currBox = currV.getMovingBoxes().get(index);
+            if(currBox.getPos().equals(target.getPos())) {
+                continue;
             }
 
-            inter = new MovingBox(new Point2D.Double(
-                    currBox.getPos().getY(),
-                    target.getPos().getX()
-            ), currBox.getWidth());
-            interV = currV.newVertexSingleMove(index, inter);
-
-            if(collisionExist(index, currV, inter) ||
-                    collisionExist(index, interV, (MovingBox) target)) {
-                flag2 = false; // no way through here
+            List<Vertex> route = connectBox(currV, true, index, target.getPos(), true);
+            if(route == null) {
+                route = connectBox(currV, true, index, target.getPos(), false);
             }
-
-            if(flag1 == false && flag2 == false) {
+            if(route == null) {
                 return false; // no way any where
             }
-
-            feasible.add(interV); // okay store it
-            feasible.add(interV.newVertexSingleMove(index, (MovingBox) target));
-            goalState.remove(target);
+            feasible.addAll(route); // okay store it
+            currV = feasible.getLast();
         }
         //add all feasible solution to map
         for(Vertex vertex : feasible) {
-            map.add(vertex);
+            addToMap(vertex);
         }
+        solution = currV;
         return true;
     }
 
+    /**
+     * Push an object of curr to target through a corner, moving along x
+     * first if xFirst is set and along y first otherwise
+     * @param boxType true for a moving box, false for a moving obstacle
+     * @return the vertices after each leg, or null if a leg collides
+     */
+    List<Vertex> connectBox(Vertex curr, boolean boxType, int index, Point2D target, boolean xFirst) {
+        Box currBox = boxType ? curr.getMovingBoxes().get(index) : curr.getMovingObstacles().get(index);
+        Point2D corner = xFirst
+                ? new Point2D.Double(target.getX(), currBox.getPos().getY())
+                : new Point2D.Double(currBox.getPos().getX(), target.getY());
+
+        List<Vertex> route = new ArrayList<>(2);
+        Vertex currV = curr;
+        if(!corner.equals(currBox.getPos())) {
+            currV = moveIfFree(currV, boxType, index, corner, currBox.getWidth());
+            if(currV == null) {
+                return null; // no way from this side
+            }
+            route.add(currV);
+        }
+        if(!corner.equals(target)) {
+            currV = moveIfFree(currV, boxType, index, target, currBox.getWidth());
+            if(currV == null) {
+                return null; // no way through here
+            }
+            route.add(currV);
+        }
+        return route;
+    }
+
+    /**
+     * Move every object of from that is not where it is in to, each one
+     * through a corner
+     * @return the vertices after each move, or null if some object is blocked
+     */
+    List<Vertex> connectDirect(Vertex from, Vertex to) {
+        List<Vertex> route = new ArrayList<>();
+        Vertex curr = from;
+        int numBoxes = from.getMovingBoxes().size();
+        int numObjects = from.dimension() / 2;
+        for(int i = 0; i < numObjects; i++) {
+            boolean boxType = i < numBoxes;
+            int index = boxType ? i : i - numBoxes;
+            Point2D target = (boxType ? to.getMovingBoxes() : to.getMovingObstacles()).get(index).getPos();
+            Point2D pos = (boxType ? curr.getMovingBoxes() : curr.getMovingObstacles()).get(index).getPos();
+            if(pos.equals(target)) continue;
+
+            List<Vertex> legs = connectBox(curr, boxType, index, target, true);
+            if(legs == null) {
+                legs = connectBox(curr, boxType, index, target, false);
+            }
+            if(legs == null) {
+                return null;
+            }
+            route.addAll(legs);
+            curr = route.get(route.size() - 1);
+        }
+        return route;
+    }
+
+    /** @return the child of curr with the object moved to pos, or null if the move collides */
+    private Vertex moveIfFree(Vertex curr, boolean boxType, int index, Point2D pos, double width) {
+        if(boxType) {
+            MovingBox newBox = new MovingBox(pos, width);
+            return collisionExist(index, curr, newBox) ? null : curr.newVertexSingleMove(index, newBox);
+        } else {
+            MovingObstacle newBox = new MovingObstacle(pos, width);
+            return collisionExist(index, curr, newBox) ? null : curr.newVertexSingleMove(index, newBox);
+        }
+    }
+
 
     @Override
     public Vertex newVertex() {
+        return newVertex(map);
+    }
+
+    /**
+     * Sample a collision free Vertex one move away from a vertex of tree,
+     * and not already in the map if tree is the map
+     */
+    Vertex newVertex(StoredTree tree) {
+        long start = PlannerMetrics.start();
         Vertex v;
+        boolean rejected;
         int count = 0;
         do {
-            v = sample();
-        } while(collisionExist(v) && ++count != MAX_ITER);
+            v = sample(tree);
+            rejected = rejected(v, tree);
+        } while(rejected && ++count != MAX_ITER && !token.stopRequested());
+        metrics.stop(Phase.sample, start);
+
+        if(MAX_ITER == count) {
+            metrics.count(Counter.samplerExhausted);
+            return null; // max_iteration exceed
+        }
+        return rejected ? null : v; // null if the token stopped the sampler
+    }
+
+    private boolean rejected(Vertex v, StoredTree tree) {
+        if(v == null) {
+            return true;
+        }
+        if(tree == map && isVisited(v)) {
+            metrics.count(Counter.visitedSamples);
+            return true;
+        }
+        if(checker.movedCollides(v)) {
+            metrics.count(Counter.collidingSamples);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Vertex getSolution() {
+        return solution;
+    }
+
+    @Override
+    public Vertex getClosest() {
+        return map.get(closest);
+    }
+
+    @Override
+    public SolveResult grow(CancellationToken token) {
+        return grow(token, false);
+    }
+
+    /** @param keepImproving see SolveResult.drive */
+    SolveResult grow(CancellationToken token, boolean keepImproving) {
+        this.token = token;
+        try {
+            return SolveResult.drive(this, token, keepImproving);
+        } finally {
+            this.token = CancellationToken.NONE;
+        }
+    }
 
-        if(MAX_ITER == count) return null; // max_iteration exceed
-        else return v;
+    /** @return the number of vertices in the map */
+    @Override
+    public int size() {
+        return map.size();
     }
 
     @Override
@@ -308,12 +508,14 @@ public class RoadmapForBox implements Roadmap {
     }
 
     /**
-     * sample() use random sampling to sample a configuration
+     * sample() asks the sampler for a configuration
      * and set the ChangeBlog to a new one
-     * @return the sampled vertex, not ensuring it's collision free
+     * @return the sampled vertex, not ensuring it's collision free, or
+     * null if the static obstacle raster already rules the placement out
      */
-    private Vertex sample() {
-        ChangeLog cLog = new ChangeLog(map);
+    private Vertex sample(StoredTree tree) {
+        ChangeLog cLog = sampler.next(tree);
+        metrics.count(Counter.samples);
 
         Point2D newPoint;
         if(cLog.indexType) {
@@ -321,6 +523,10 @@ public class RoadmapForBox implements Roadmap {
         } else {
             newPoint = new Point2D.Double(cLog.oldBox.pos.getX(), cLog.newpos);
         }
+        if(checker.staticallyBlocked(cLog.boxType, cLog.boxIndex, newPoint.getX(), newPoint.getY())) {
+            metrics.count(Counter.staticallyBlocked);
+            return null;
+        }
 
         // random chose from boxes and obstacles
         Box newBox;
@@ -329,134 +535,52 @@ public class RoadmapForBox implements Roadmap {
         } else {
             newBox = new MovingObstacle(newPoint, cLog.oldBox.getWidth());
         }
-        return map.get(cLog.nodeIndex).newVertexSingleMove(cLog, newBox);
+        return tree.get(cLog.nodeIndex).newVertexSingleMove(cLog, newBox);
     }
 
 
 
     /** Collision check for a state */
-    private boolean collisionExist(Vertex v) {
-        List<Box> movingBoxes = v.getMovingBoxes();
-        List<Box> movingObs = v.getMovingObstacles();
-        List<StaticObstacle> staticObs = ps.getStaticObstacles();
-
-        for(int i = 0; i < movingObs.size(); i++) {
-            for(int j = 0; j < movingObs.size(); j++) {
-                if(i == j) continue;
-                if (movingObs.get(i).getRect()
-                        .intersects(movingObs.get(j).getRect())) {
-                    return true;
-                }
-            }
-
-            for(int j = 0; j < movingBoxes.size(); j++) {
-                if(movingObs.get(i).getRect()
-                        .intersects(movingBoxes.get(j).getRect())) {
-                    return true;
-                }
-            }
-
-            for(int j = 0; j < staticObs.size(); j++) {
-                if(movingObs.get(i).getRect()
-                        .intersects(staticObs.get(j).getRect())) {
-                    return true;
-                }
-            }
-        }
-
-        for(int i = 0; i < movingBoxes.size(); i++) {
-            for(int j = 0; j < movingObs.size(); j++) {
-                if (movingBoxes.get(i).getRect()
-                        .intersects(movingObs.get(j).getRect())) {
-                    return true;
-                }
-            }
-
-            for(int j = 0; j < movingBoxes.size(); j++) {
-                if(i == j) continue;
-                if(movingBoxes.get(i).getRect()
-                        .intersects(movingBoxes.get(j).getRect())) {
-                    return true;
-                }
-            }
-
-            for(int j = 0; j < staticObs.size(); j++) {
-                if(movingBoxes.get(i).getRect()
-                        .intersects(staticObs.get(j).getRect())) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    boolean collisionExist(Vertex v) {
+        metrics.count(Counter.stateChecks);
+        return checker.collisionExist(v);
     }
 
 
-    /** This method is only valid when curr is collision free!! */
-    private boolean collisionExist(ChangeLog log, Vertex curr, Box newBox) {
-        if(log == null) {
-            return true;
-        }
-        if(log.boxType) {
-            return collisionExist(log.boxIndex, curr, (MovingBox)newBox);
-        } else {
-            return collisionExist(log.boxIndex, curr, (MovingObstacle)newBox);
-        }
-    }
-
-
-    private boolean collisionExist(int index, Vertex curr, MovingBox newBox) {
+    boolean collisionExist(int index, Vertex curr, MovingBox newBox) {
+        metrics.count(Counter.boxMoveChecks);
 
         double width = newBox.getWidth();
         Box oldBox = curr.getMovingBoxes().get(index);
 
+        // area swept by the move
         Rectangle2D rect = new Rectangle2D.Double(
-                (oldBox.getPos().getX() + newBox.getPos().getX()) / 2,
-                (oldBox.getPos().getY() + newBox.getPos().getY()) / 2,
+                Math.min(oldBox.getPos().getX(), newBox.getPos().getX()),
+                Math.min(oldBox.getPos().getY(), newBox.getPos().getY()),
                 width + abs(oldBox.getPos().getX() - newBox.getPos().getX()),
                 width + abs(oldBox.getPos().getY() - newBox.getPos().getY())
         );
-        return collisionExist(oldBox, curr, rect);
+        return collisionExist(checker.boxId(index), curr, rect);
     }
 
-    private boolean collisionExist(int index, Vertex curr, MovingObstacle newBox) {
+    boolean collisionExist(int index, Vertex curr, MovingObstacle newBox) {
+        metrics.count(Counter.obstacleMoveChecks);
 
         double width = newBox.getWidth();
         Box oldBox = curr.getMovingObstacles().get(index);
 
+        // area swept by the move
         Rectangle2D rect = new Rectangle2D.Double(
-                (oldBox.getPos().getX() + newBox.getPos().getX()) / 2,
-                (oldBox.getPos().getY() + newBox.getPos().getY()) / 2,
+                Math.min(oldBox.getPos().getX(), newBox.getPos().getX()),
+                Math.min(oldBox.getPos().getY(), newBox.getPos().getY()),
                 width + abs(oldBox.getPos().getX() - newBox.getPos().getX()),
                 width + abs(oldBox.getPos().getY() - newBox.getPos().getY())
         );
-        return collisionExist(oldBox, curr, rect);
+        return collisionExist(checker.obstacleId(index), curr, rect);
     }
 
-    // old excluded
-    private boolean collisionExist(Box old, Vertex curr, Rectangle2D rect) {
-        List<Box> movingBoxes = curr.getMovingBoxes();
-        List<Box> movingObs = curr.getMovingObstacles();
-        List<StaticObstacle> staticObstacles = ps.getStaticObstacles();
-
-        for(Box obs : movingObs) {
-            if(obs.equals(old)) continue; // exclude the old box
-            if(rect.intersects(obs.getRect())) {
-                return true;
-            }
-        }
-
-        for(Box obs : movingBoxes) {
-            if(obs.equals(old)) continue;
-            if(rect.intersects(obs.getRect())) {
-                return true;
-            }
-        }
-
-        for(StaticObstacle obs : staticObstacles) {
-            if(rect.intersects(obs.getRect())) {
-                return true;
-            }
-        }
-        return false;
+    // the object with grid id old excluded
+    private boolean collisionExist(int old, Vertex curr, Rectangle2D rect) {
+        return checker.collisionExist(old, curr, rect);
     }
 }
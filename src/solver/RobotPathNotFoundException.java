@@ -0,0 +1,9 @@
+package solver;
+
+public class RobotPathNotFoundException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    RobotPathNotFoundException(String message) {
+        super(message);
+    }
+}
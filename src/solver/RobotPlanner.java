@@ -0,0 +1,677 @@
+package solver;
+
+import problem.Box;
+import problem.ProblemSpec;
+import problem.RobotConfig;
+import problem.StaticObstacle;
+import tester.Tester;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Turns a chain of box moves into a robot trajectory.
+ *
+ * For every move the robot is routed to the face of the object opposite to
+ * the direction of the move, aligned with that face, and then pushes the
+ * object to its new position. Routing first tries a direct move through one
+ * corner and otherwise searches a lattice of robot centres in steps of
+ * LATTICE_STEP, where the robot is either horizontal or vertical and may
+ * rotate in place wherever the sectors it sweeps are free. Rotations are
+ * checked with SegmentKernel, translations of the aligned robot sweep a
+ * rectangle and are checked with the grid alone.
+ *
+ * Tester fails an aligned robot that comes within MAX_ERROR of two moving
+ * objects at once, so the robot keeps OBJECT_CLEARANCE from every moving
+ * object but the one it is about to push, and backs off from an object it
+ * touches before it heads for another one.
+ *
+ * The lattice is a roadmap built once per problem: StaticLattice holds the
+ * edges the static obstacles leave free, and every routing of a plan is a
+ * graph search over it. Whether an edge is also clear of the moving objects
+ * is checked the first time a search reaches it and remembered; when an
+ * object is pushed only the edges around its old and new place are
+ * forgotten, to be checked again if a later search gets there.
+ *
+ * The result is a list of waypoints, StepInterpolator expands it into
+ * primitive steps.
+ */
+public class RobotPlanner {
+    static final double LATTICE_STEP = RoadmapForBox.PRIMITIVE;
+    /** How far around an off-lattice configuration to look for lattice nodes */
+    private static final int CONNECT_RADIUS = 2;
+    /**
+     * Tester counts a robot touching a static obstacle as a collision, so
+     * static obstacles are grown by this much to make touching an overlap
+     */
+    static final double STATIC_CLEARANCE = 1e-9;
+    /** How far the robot keeps from the moving objects it does not push, more than Tester.MAX_ERROR */
+    static final double OBJECT_CLEARANCE = 2 * Tester.MAX_ERROR;
+    /** States of an edge against the moving objects */
+    private static final byte UNKNOWN = 0, FREE = 1, BLOCKED = 2;
+    /** Free states of a rotate edge, which of the turns of StaticLattice.canTurn are free */
+    private static final byte LOW_TURN = 4, HIGH_TURN = 8;
+    /** Edges leaving a node, edges -x and -y are the +x and +y of a neighbour */
+    private static final int MOVE_X = 0, MOVE_Y = 1, ROTATE = 2, EDGES = 3;
+
+    private final ProblemSpec ps;
+    private final double half; // half the robot width
+    private final int numStatic;
+    private final int numBoxes;
+    private final int numObjects;
+    private final double[] widths;
+    private final StaticLattice lattice;
+
+    // state of the current plan, bottom-left corners of all moving objects,
+    // which the grid holds grown by OBJECT_CLEARANCE
+    private SpatialGrid grid;
+    // bounds of the statics and the moving objects by grid id, for SegmentKernel
+    private final double[] rects;
+    private final int[] candidates;
+    private final double[] objX;
+    private final double[] objY;
+    private double robotX, robotY, robotAngle;
+
+    // lattice search, nodes are (j * n + i) * 2 + (vertical ? 1 : 0)
+    private final int n;
+    private final double[] cost;
+    private final int[] parent;
+    private final int[] visited; // stamp when cost/parent were set
+    private final int[] closed;
+    private final int[] goalMark;
+    private final double[] goalCost;
+    private int stamp;
+    private int[] heapNode = new int[256];
+    private double[] heapKey = new double[256];
+    private int heapSize;
+    /** node * EDGES + edge, the edges of both orientations of a cell are adjacent */
+    private final byte[] edgeState;
+
+    public RobotPlanner(ProblemSpec ps) {
+        this(ps, RoadmapCache.inMemory(ps));
+    }
+
+    /** @param cache where the static part of the lattice comes from */
+    public RobotPlanner(ProblemSpec ps, RoadmapCache cache) {
+        this.ps = ps;
+        lattice = cache.lattice();
+        half = ps.getRobotWidth() / 2;
+        numStatic = ps.getStaticObstacles().size();
+        numBoxes = ps.getMovingBoxes().size();
+        numObjects = numBoxes + ps.getMovingObstacles().size();
+        widths = new double[numObjects];
+        for(int i = 0; i < numObjects; i++) {
+            widths[i] = object(ps.getMovingBoxes(), ps.getMovingObstacles(), i).getWidth();
+        }
+        objX = new double[numObjects];
+        objY = new double[numObjects];
+        rects = new double[4 * (numStatic + numObjects)];
+        candidates = new int[numStatic + numObjects];
+
+        n = (int) Math.round(1 / LATTICE_STEP) + 1;
+        int states = n * n * 2;
+        cost = new double[states];
+        parent = new int[states];
+        visited = new int[states];
+        closed = new int[states];
+        goalMark = new int[states];
+        goalCost = new double[states];
+        edgeState = new byte[states * EDGES];
+    }
+
+    /**
+     * Plan the robot for the moves along the parent chain of solution
+     * @return the waypoints, the first one is the initial robot configuration
+     * @throws RobotPathNotFoundException if the robot cannot reach a push
+     * position or a push would drag the robot through another object
+     */
+    public List<Waypoint> plan(Vertex solution) throws RobotPathNotFoundException {
+        return plan(solution, CancellationToken.NONE);
+    }
+
+    /**
+     * As plan(Vertex), checking token before every move
+     * @return the waypoints, or null if token asked to stop first
+     */
+    public List<Waypoint> plan(Vertex solution, CancellationToken token) throws RobotPathNotFoundException {
+        List<Vertex> chain = solution.pathFromRoot();
+        reset(chain.get(0));
+
+        List<Waypoint> path = new ArrayList<>();
+        RobotConfig init = ps.getInitialRobotConfig();
+        robotX = init.getPos().getX();
+        robotY = init.getPos().getY();
+        robotAngle = init.getOrientation();
+        path.add(new Waypoint(robotX, robotY, robotAngle));
+
+        for(int s = 1; s < chain.size(); s++) {
+            if(token.stopRequested()) {
+                return null;
+            }
+            ChangeLog log = chain.get(s).getLog();
+            int k = log.boxType ? log.boxIndex : numBoxes + log.boxIndex;
+            Box newBox = object(chain.get(s).getMovingBoxes(), chain.get(s).getMovingObstacles(), k);
+            double nx = newBox.getPos().getX();
+            double ny = newBox.getPos().getY();
+            double dx = nx - objX[k];
+            double dy = ny - objY[k];
+            if(dx == 0 && dy == 0) continue;
+            push(path, k, dx, dy, nx, ny);
+        }
+        return path;
+    }
+
+    private void push(List<Waypoint> path, int k, double dx, double dy, double nx, double ny)
+            throws RobotPathNotFoundException {
+        double w = widths[k];
+        double ox = objX[k], oy = objY[k];
+        boolean vertical = abs(dx) >= abs(dy);
+        // robot centre where the push starts and ends, both computed from
+        // the object so the robot ends up exactly on its face
+        double sx, sy, ex, ey;
+        if(vertical) {
+            sx = dx > 0 ? ox : ox + w;
+            ex = dx > 0 ? nx : nx + w;
+            sy = oy + w / 2;
+            ey = ny + w / 2;
+        } else {
+            sx = ox + w / 2;
+            ex = nx + w / 2;
+            sy = dy > 0 ? oy : oy + w;
+            ey = dy > 0 ? ny : ny + w;
+        }
+
+        route(path, sx, sy, vertical, k);
+        double angle = robotAngle;
+        if(!translationFree(sx, sy, ex, ey, vertical, k, true)) {
+            throw new RobotPathNotFoundException("robot collides while pushing object " + k
+                    + " from (" + ox + ", " + oy + ") to (" + nx + ", " + ny + ")");
+        }
+        path.add(new Waypoint(ex, ey, angle, k, nx, ny));
+        moveObject(k, nx, ny);
+        robotX = ex;
+        robotY = ey;
+    }
+
+    /**
+     * Append the waypoints that bring the robot to (tx, ty), vertical or
+     * horizontal as requested, where it may touch object target
+     */
+    private void route(List<Waypoint> path, double tx, double ty, boolean vertical, int target)
+            throws RobotPathNotFoundException {
+        boolean aligned = isAxisAligned(robotAngle) && isVertical(robotAngle) == vertical;
+        if(aligned && robotX == tx && robotY == ty) {
+            return;
+        }
+        if(isAxisAligned(robotAngle)) {
+            backOff(path, target);
+        }
+        if(aligned) {
+            int order = cornerOrder(robotX, robotY, tx, ty, vertical, target);
+            if(order >= 0) {
+                addCorner(path, robotX, robotY, tx, ty, order, robotAngle);
+                addPoint(path, tx, ty, robotAngle);
+                return;
+            }
+        } else if(turnFree(robotX, robotY, robotAngle, alignedAngle(robotAngle, vertical), target)) {
+            // rotate where the robot is, then try to go straight there
+            int order = cornerOrder(robotX, robotY, tx, ty, vertical, target);
+            if(order >= 0) {
+                double angle = alignedAngle(robotAngle, vertical);
+                addPoint(path, robotX, robotY, angle);
+                addCorner(path, robotX, robotY, tx, ty, order, angle);
+                addPoint(path, tx, ty, angle);
+                return;
+            }
+        }
+        if(!isAxisAligned(robotAngle)) {
+            double angle = alignedAngle(robotAngle, isVertical(robotAngle));
+            if(!turnFree(robotX, robotY, robotAngle, angle, target)) {
+                throw new RobotPathNotFoundException("robot cannot align with the axes at ("
+                        + robotX + ", " + robotY + ")");
+            }
+            robotAngle = angle;
+            addPoint(path, robotX, robotY, robotAngle);
+        }
+        searchLattice(path, tx, ty, vertical, target);
+    }
+
+    /**
+     * Move the aligned robot OBJECT_CLEARANCE clear of the object it
+     * touches, unless that is target, trying sideways before lengthwise
+     */
+    private void backOff(List<Waypoint> path, int target) {
+        boolean vertical = isVertical(robotAngle);
+        int touched = touching(robotX, robotY, vertical);
+        if(touched < 0 || touched == target) {
+            return;
+        }
+        double d = 2 * OBJECT_CLEARANCE;
+        double[] moves = vertical ? new double[] {-d, 0, d, 0, 0, -d, 0, d}
+                : new double[] {0, -d, 0, d, -d, 0, d, 0};
+        for(int m = 0; m < moves.length; m += 2) {
+            double x = robotX + moves[m], y = robotY + moves[m + 1];
+            if(translationFree(robotX, robotY, x, y, vertical, touched, false)
+                    && translationFree(x, y, x, y, vertical, -1, false)) {
+                addPoint(path, x, y, robotAngle);
+                return;
+            }
+        }
+    }
+
+    /** @return the moving object within OBJECT_CLEARANCE of the aligned robot at (x, y), or -1 */
+    private int touching(double x, double y, boolean vertical) {
+        double ex = vertical ? 0 : half;
+        double ey = vertical ? half : 0;
+        double c = OBJECT_CLEARANCE;
+        for(int k = 0; k < numObjects; k++) {
+            double w = widths[k];
+            if(x - ex < objX[k] + w + c && objX[k] - c < x + ex
+                    && y - ey < objY[k] + w + c && objY[k] - c < y + ey) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /** A* over the lattice from the robot to (tx, ty), where it may touch object target */
+    private void searchLattice(List<Waypoint> path, double tx, double ty, boolean goalVertical, int target)
+            throws RobotPathNotFoundException {
+        boolean startVertical = isVertical(robotAngle);
+        if(++stamp == 0) {
+            Arrays.fill(visited, 0);
+            Arrays.fill(closed, 0);
+            Arrays.fill(goalMark, 0);
+            stamp = 1;
+        }
+        heapSize = 0;
+
+        // lattice nodes around the target the robot can leave the lattice from
+        boolean anyGoal = false;
+        int ti = (int) Math.round(tx / LATTICE_STEP), tj = (int) Math.round(ty / LATTICE_STEP);
+        for(int j = tj - CONNECT_RADIUS; j <= tj + CONNECT_RADIUS; j++) {
+            for(int i = ti - CONNECT_RADIUS; i <= ti + CONNECT_RADIUS; i++) {
+                if(i < 0 || j < 0 || i >= n || j >= n) continue;
+                double x = i * LATTICE_STEP, y = j * LATTICE_STEP;
+                if(cornerOrder(x, y, tx, ty, goalVertical, target) >= 0) {
+                    int node = node(i, j, goalVertical);
+                    goalMark[node] = stamp;
+                    goalCost[node] = abs(tx - x) + abs(ty - y);
+                    anyGoal = true;
+                }
+            }
+        }
+        // lattice nodes the robot can reach directly
+        int si = (int) Math.round(robotX / LATTICE_STEP), sj = (int) Math.round(robotY / LATTICE_STEP);
+        for(int j = sj - CONNECT_RADIUS; j <= sj + CONNECT_RADIUS && anyGoal; j++) {
+            for(int i = si - CONNECT_RADIUS; i <= si + CONNECT_RADIUS; i++) {
+                if(i < 0 || j < 0 || i >= n || j >= n) continue;
+                double x = i * LATTICE_STEP, y = j * LATTICE_STEP;
+                if(cornerOrder(robotX, robotY, x, y, startVertical, target) >= 0) {
+                    relax(node(i, j, startVertical), -1, abs(robotX - x) + abs(robotY - y), tx, ty);
+                }
+            }
+        }
+
+        double rotateCost = half * Math.PI / 2;
+        int found = -1;
+        while(heapSize > 0) {
+            int curr = heapPop();
+            if(closed[curr] == stamp) continue;
+            closed[curr] = stamp;
+            if(goalMark[curr] == stamp) {
+                found = curr;
+                break;
+            }
+            int cell = curr >> 1;
+            int i = cell % n, j = cell / n;
+            boolean vertical = (curr & 1) == 1;
+            double x = i * LATTICE_STEP, y = j * LATTICE_STEP;
+            double g = cost[curr];
+            // the static lattice rules out most blocked edges without a query
+            if(lattice.canMoveX(curr) && edgeFree(curr, MOVE_X)) {
+                relax(node(i + 1, j, vertical), curr, g + LATTICE_STEP, tx, ty);
+            }
+            if(i > 0 && lattice.canMoveX(node(i - 1, j, vertical)) && edgeFree(node(i - 1, j, vertical), MOVE_X)) {
+                relax(node(i - 1, j, vertical), curr, g + LATTICE_STEP, tx, ty);
+            }
+            if(lattice.canMoveY(curr) && edgeFree(curr, MOVE_Y)) {
+                relax(node(i, j + 1, vertical), curr, g + LATTICE_STEP, tx, ty);
+            }
+            if(j > 0 && lattice.canMoveY(node(i, j - 1, vertical)) && edgeFree(node(i, j - 1, vertical), MOVE_Y)) {
+                relax(node(i, j - 1, vertical), curr, g + LATTICE_STEP, tx, ty);
+            }
+            if((lattice.canTurn(curr, false) || lattice.canTurn(curr, true)) && edgeFree(curr, ROTATE)) {
+                relax(curr ^ 1, curr, g + rotateCost, tx, ty);
+            }
+        }
+        if(found == -1) {
+            throw new RobotPathNotFoundException("no robot path from (" + robotX + ", " + robotY
+                    + ") to (" + tx + ", " + ty + ")");
+        }
+
+        // walk back to the entry node
+        List<Integer> nodes = new ArrayList<>();
+        for(int node = found; node != -1; node = parent[node]) {
+            nodes.add(node);
+        }
+        int entry = nodes.get(nodes.size() - 1);
+        double x = nodeX(entry), y = nodeY(entry);
+        addCorner(path, robotX, robotY, x, y, cornerOrder(robotX, robotY, x, y, startVertical, target), robotAngle);
+        double angle = robotAngle;
+        for(int k = nodes.size() - 1; k >= 0; k--) {
+            int node = nodes.get(k);
+            if(((node & 1) == 1) != isVertical(angle)) {
+                addPoint(path, nodeX(node), nodeY(node), angle);
+                angle = turnTo(angle, (node & 1) == 1, edgeState[nodes.get(k + 1) * EDGES + ROTATE]);
+            }
+            addPoint(path, nodeX(node), nodeY(node), angle);
+        }
+        x = nodeX(found);
+        y = nodeY(found);
+        addCorner(path, x, y, tx, ty, cornerOrder(x, y, tx, ty, goalVertical, target), angle);
+        addPoint(path, tx, ty, angle);
+    }
+
+    private void relax(int node, int from, double g, double tx, double ty) {
+        if(closed[node] == stamp) {
+            return;
+        }
+        if(visited[node] == stamp && cost[node] <= g) {
+            return;
+        }
+        visited[node] = stamp;
+        cost[node] = g;
+        parent[node] = from;
+        heapPush(node, g + abs(tx - nodeX(node)) + abs(ty - nodeY(node)));
+    }
+
+    /**
+     * Check whether an edge of the lattice is clear of the moving objects,
+     * asking the grid only the first time since an object near it moved
+     */
+    private boolean edgeFree(int node, int edge) {
+        int e = node * EDGES + edge;
+        byte state = edgeState[e];
+        if(state == UNKNOWN) {
+            double x = nodeX(node), y = nodeY(node);
+            boolean vertical = (node & 1) == 1;
+            if(edge == MOVE_X) {
+                state = translationFree(x, y, x + LATTICE_STEP, y, vertical, -1, false) ? FREE : BLOCKED;
+            } else if(edge == MOVE_Y) {
+                state = translationFree(x, y, x, y + LATTICE_STEP, vertical, -1, false) ? FREE : BLOCKED;
+            } else {
+                int turns = 0;
+                if(lattice.canTurn(node, false) && turnFree(x, y, 0, Math.PI / 2, -1)) {
+                    turns |= LOW_TURN;
+                }
+                if(lattice.canTurn(node, true) && turnFree(x, y, Math.PI / 2, Math.PI, -1)) {
+                    turns |= HIGH_TURN;
+                }
+                state = turns == 0 ? BLOCKED : (byte) turns;
+            }
+            edgeState[e] = state;
+        }
+        return state != BLOCKED;
+    }
+
+    /**
+     * @param turns the state of the rotate edge the robot turns on
+     * @return the aligned angle to turn to from angle, the one alignedAngle
+     * picks unless only the turn the other way is free
+     */
+    private static double turnTo(double angle, boolean vertical, byte turns) {
+        double to = alignedAngle(angle, vertical);
+        byte needed = highTurn(angle, to) ? HIGH_TURN : LOW_TURN;
+        if((turns & needed) != 0) {
+            return to;
+        }
+        // the other aligned angle, a quarter turn the other way
+        double base = vertical ? Math.PI / 2 : 0;
+        double lo = base + Math.PI * Math.floor((angle - base) / Math.PI);
+        return to == lo ? lo + Math.PI : lo;
+    }
+
+    /**
+     * @return true if a quarter turn between aligned angles a and b is the
+     * turn between PI / 2 and PI, up to multiples of PI
+     */
+    private static boolean highTurn(double a, double b) {
+        return (Math.round(Math.min(a, b) / (Math.PI / 2)) & 1) == 1;
+    }
+
+    /**
+     * Forget the state of every edge that may touch the rectangle: an edge
+     * sweeps at most half the robot width around its nodes and a step
+     * beyond the node it leaves, and keeps OBJECT_CLEARANCE from the rectangle
+     */
+    private void invalidateEdges(double x0, double y0, double x1, double y1) {
+        double margin = half + LATTICE_STEP + OBJECT_CLEARANCE;
+        int i0 = Math.max(0, (int) Math.floor((x0 - margin) / LATTICE_STEP));
+        int i1 = Math.min(n - 1, (int) Math.ceil((x1 + margin) / LATTICE_STEP));
+        int j0 = Math.max(0, (int) Math.floor((y0 - margin) / LATTICE_STEP));
+        int j1 = Math.min(n - 1, (int) Math.ceil((y1 + margin) / LATTICE_STEP));
+        for(int j = j0; j <= j1; j++) {
+            int from = node(i0, j, false) * EDGES;
+            Arrays.fill(edgeState, from, from + (i1 - i0 + 1) * 2 * EDGES, UNKNOWN);
+        }
+    }
+
+    /**
+     * @param target an object the robot may touch, or -1
+     * @return 0 if the robot can move from (x1, y1) to (x2, y2) along x
+     * then y, 1 if along y then x, -1 if neither
+     */
+    private int cornerOrder(double x1, double y1, double x2, double y2, boolean vertical, int target) {
+        if(translationFree(x1, y1, x2, y1, vertical, target, false)
+                && translationFree(x2, y1, x2, y2, vertical, target, false)) {
+            return 0;
+        }
+        if(translationFree(x1, y1, x1, y2, vertical, target, false)
+                && translationFree(x1, y2, x2, y2, vertical, target, false)) {
+            return 1;
+        }
+        return -1;
+    }
+
+    private void addCorner(List<Waypoint> path, double x1, double y1, double x2, double y2,
+                           int order, double angle) {
+        if(order == 0) {
+            addPoint(path, x2, y1, angle);
+        } else {
+            addPoint(path, x1, y2, angle);
+        }
+    }
+
+    /**
+     * Append a waypoint, dropping it if it repeats the last one and merging
+     * it into the last one if both continue the same straight move
+     */
+    private void addPoint(List<Waypoint> path, double x, double y, double angle) {
+        int last = path.size() - 1;
+        Waypoint a = path.get(last);
+        if(a.robotX == x && a.robotY == y && a.angle == angle) {
+            return;
+        }
+        if(last > 0 && a.movedIndex < 0) {
+            Waypoint b = path.get(last - 1);
+            boolean straight = b.angle == a.angle && a.angle == angle
+                    && ((b.robotX == a.robotX && a.robotX == x && (a.robotY - b.robotY) * (y - a.robotY) > 0)
+                    || (b.robotY == a.robotY && a.robotY == y && (a.robotX - b.robotX) * (x - a.robotX) > 0));
+            if(straight) {
+                path.remove(last);
+            }
+        }
+        path.add(new Waypoint(x, y, angle));
+        robotX = x;
+        robotY = y;
+        robotAngle = angle;
+    }
+
+    /**
+     * Check whether an axis aligned robot can translate from (x1, y1) to
+     * (x2, y2) along one axis, keeping OBJECT_CLEARANCE from every moving
+     * object but k
+     * @param k an object the robot may touch, or -1
+     * @param pushing the robot pushes k along, so k is ignored
+     */
+    private boolean translationFree(double x1, double y1, double x2, double y2, boolean vertical,
+                                    int k, boolean pushing) {
+        double ex = vertical ? 0 : half;
+        double ey = vertical ? half : 0;
+        double x0 = Math.min(x1, x2) - ex, xx = Math.max(x1, x2) + ex;
+        double y0 = Math.min(y1, y2) - ey, yy = Math.max(y1, y2) + ey;
+        if(x0 < 0 || y0 < 0 || xx >= 1 || yy >= 1) {
+            return false;
+        }
+        if(grid.overlapsAny(x0, y0, xx, yy, k < 0 ? -1 : numStatic + k)) {
+            return false;
+        }
+        if(k < 0 || pushing) {
+            return true;
+        }
+        double w = widths[k];
+        return !(x0 < objX[k] + w && objX[k] < xx && y0 < objY[k] + w && objY[k] < yy);
+    }
+
+    /**
+     * Check whether the robot can turn in place around (x, y) from angle
+     * from to angle to, as StepInterpolator turns it. Touching object k is
+     * free, touching a static obstacle is not and the other moving objects
+     * are kept OBJECT_CLEARANCE away.
+     */
+    private boolean turnFree(double x, double y, double from, double to, int k) {
+        if(x - half < 0 || y - half < 0 || x + half >= 1 || y + half >= 1) {
+            return false;
+        }
+        int count = grid.candidates(x - half, y - half, x + half, y + half, candidates);
+        for(int c = 0; c < count; c++) {
+            int id = candidates[c];
+            double delta = id < numStatic ? STATIC_CLEARANCE
+                    : id == numStatic + k ? -STATIC_CLEARANCE : OBJECT_CLEARANCE;
+            if(SegmentKernel.rotationHits(rects, id, delta, x, y, 2 * half, from, to)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void reset(Vertex root) {
+        List<StaticObstacle> staticObs = ps.getStaticObstacles();
+        grid = new SpatialGrid(SpatialGrid.resolutionFor(2 * half), numStatic + numObjects);
+        for(int i = 0; i < numStatic; i++) {
+            Rectangle2D rect = staticObs.get(i).getRect();
+            grid.put(i, rect.getMinX() - STATIC_CLEARANCE, rect.getMinY() - STATIC_CLEARANCE,
+                    rect.getMaxX() + STATIC_CLEARANCE, rect.getMaxY() + STATIC_CLEARANCE);
+            SegmentKernel.set(rects, i, rect);
+        }
+        for(int k = 0; k < numObjects; k++) {
+            Box box = object(root.getMovingBoxes(), root.getMovingObstacles(), k);
+            placeObject(k, box.getPos().getX(), box.getPos().getY());
+        }
+        Arrays.fill(edgeState, UNKNOWN);
+    }
+
+    /** Move object k, the edges around where it was and where it is are checked again */
+    private void moveObject(int k, double x, double y) {
+        double w = widths[k];
+        invalidateEdges(objX[k], objY[k], objX[k] + w, objY[k] + w);
+        invalidateEdges(x, y, x + w, y + w);
+        placeObject(k, x, y);
+    }
+
+    private void placeObject(int k, double x, double y) {
+        objX[k] = x;
+        objY[k] = y;
+        grid.put(numStatic + k, x - OBJECT_CLEARANCE, y - OBJECT_CLEARANCE,
+                x + widths[k] + OBJECT_CLEARANCE, y + widths[k] + OBJECT_CLEARANCE);
+        int r = 4 * (numStatic + k);
+        rects[r] = x;
+        rects[r + 1] = y;
+        rects[r + 2] = widths[k];
+        rects[r + 3] = widths[k];
+    }
+
+    private Box object(List<Box> boxes, List<Box> obstacles, int k) {
+        return k < numBoxes ? boxes.get(k) : obstacles.get(k - numBoxes);
+    }
+
+    private int node(int i, int j, boolean vertical) {
+        return (j * n + i) * 2 + (vertical ? 1 : 0);
+    }
+
+    private double nodeX(int node) {
+        return ((node >> 1) % n) * LATTICE_STEP;
+    }
+
+    private double nodeY(int node) {
+        return ((node >> 1) / n) * LATTICE_STEP;
+    }
+
+    /** Is the robot closer to vertical than to horizontal */
+    static boolean isVertical(double angle) {
+        return abs(Math.sin(angle)) > abs(Math.cos(angle));
+    }
+
+    private static boolean isAxisAligned(double angle) {
+        return angle == alignedAngle(angle, isVertical(angle));
+    }
+
+    /**
+     * The angle closest to angle at which the robot is vertical or
+     * horizontal, the robot is symmetric so any multiple of PI will do.
+     * Ties go to the angle closer to zero so rotations do not wind up.
+     */
+    static double alignedAngle(double angle, boolean vertical) {
+        double base = vertical ? Math.PI / 2 : 0;
+        double lo = base + Math.PI * Math.floor((angle - base) / Math.PI);
+        double hi = lo + Math.PI;
+        double toLo = angle - lo, toHi = hi - angle;
+        if(toLo != toHi) {
+            return toLo < toHi ? lo : hi;
+        }
+        return Math.abs(lo) <= Math.abs(hi) ? lo : hi;
+    }
+
+    private static double abs(double v) {
+        return Math.abs(v);
+    }
+
+    private void heapPush(int node, double key) {
+        if(heapSize == heapNode.length) {
+            heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+            heapKey = Arrays.copyOf(heapKey, heapSize * 2);
+        }
+        int i = heapSize++;
+        while(i > 0) {
+            int p = (i - 1) >> 1;
+            if(heapKey[p] <= key) break;
+            heapNode[i] = heapNode[p];
+            heapKey[i] = heapKey[p];
+            i = p;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+    }
+
+    private int heapPop() {
+        int top = heapNode[0];
+        int node = heapNode[--heapSize];
+        double key = heapKey[heapSize];
+        int i = 0;
+        while(true) {
+            int c = 2 * i + 1;
+            if(c >= heapSize) break;
+            if(c + 1 < heapSize && heapKey[c + 1] < heapKey[c]) c++;
+            if(heapKey[c] >= key) break;
+            heapNode[i] = heapNode[c];
+            heapKey[i] = heapKey[c];
+            i = c;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+        return top;
+    }
+}
@@ -0,0 +1,148 @@
+package solver;
+
+import problem.Box;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Draws the single moves sampled by RoadmapForBox. A sample is a vertex of
+ * the tree, one of its objects, an axis and a new coordinate along that
+ * axis, all derived from a point of the unit 4-cube that the concrete
+ * sampler chooses.
+ *
+ * Every planner owns its sampler, a sampler created with the same strategy
+ * and seed always yields the same samples for the same tree.
+ */
+abstract class Sampler {
+    private final double[] u = new double[4];
+
+    /** Fill u with the next point of [0, 1)^4 */
+    protected abstract void draw(double[] u);
+
+    /** @return the move of the next sample from a vertex of tree */
+    ChangeLog next(StoredTree tree) {
+        draw(u);
+        int nodeIndex = pick(u[0], tree.size());
+        // the counts are those of the root, the moved box is read without rebuilding the vertex
+        Vertex root = tree.get(0);
+        List<Box> movingBoxes = root.getMovingBoxes();
+        List<Box> movingObs = root.getMovingObstacles();
+
+        // half of the samples move a box and half an obstacle, if there are any
+        boolean boxType;
+        int boxIndex;
+        if(movingObs == null || movingObs.isEmpty()) {
+            boxType = true;
+            boxIndex = pick(u[1], movingBoxes.size());
+        } else if(u[1] < 0.5) {
+            boxType = true;
+            boxIndex = pick(u[1] * 2, movingBoxes.size());
+        } else {
+            boxType = false;
+            boxIndex = pick(u[1] * 2 - 1, movingObs.size());
+        }
+        Box oldBox = tree.object(nodeIndex, boxType, boxIndex);
+        // double [0, 1 - width]
+        double newpos = u[3] * (1 - oldBox.getWidth());
+        return new ChangeLog(nodeIndex, boxType, boxIndex, u[2] < 0.5, oldBox, newpos);
+    }
+
+    /** @return an index below n from u in [0, 1) */
+    static int pick(double u, int n) {
+        return Math.min(n - 1, (int) (u * n));
+    }
+
+    /**
+     * @param goal the goal of the planner, used by the goal biased strategy
+     * @param seed every sampler draws its own stream from this seed
+     */
+    static Sampler create(SamplingStrategy strategy, Vertex goal, long seed) {
+        switch(strategy) {
+            case halton:
+                return new HaltonSampler(seed);
+            case goal:
+                return new GoalBiasedSampler(goal, seed);
+            default:
+                return new UniformSampler(seed);
+        }
+    }
+
+    /** Independent uniform draws */
+    static class UniformSampler extends Sampler {
+        final SplittableRandom random;
+
+        UniformSampler(long seed) {
+            random = new SplittableRandom(seed);
+        }
+
+        @Override
+        protected void draw(double[] u) {
+            for(int d = 0; d < u.length; d++) {
+                u[d] = random.nextDouble();
+            }
+        }
+    }
+
+    /**
+     * The Halton sequence in bases 2, 3, 5 and 7, which covers the cube more
+     * evenly than independent draws. The seed picks where in the sequence
+     * the sampler starts.
+     */
+    static class HaltonSampler extends Sampler {
+        private static final int[] BASES = {2, 3, 5, 7};
+        private long index;
+
+        HaltonSampler(long seed) {
+            index = 1 + (new SplittableRandom(seed).nextLong() >>> 40);
+        }
+
+        @Override
+        protected void draw(double[] u) {
+            for(int d = 0; d < u.length; d++) {
+                u[d] = radicalInverse(index, BASES[d]);
+            }
+            index++;
+        }
+
+        /** The digits of i in base b mirrored around the point */
+        static double radicalInverse(long i, int b) {
+            double inv = 1.0 / b;
+            double f = inv;
+            double r = 0;
+            while(i > 0) {
+                r += f * (i % b);
+                i /= b;
+                f *= inv;
+            }
+            return r;
+        }
+    }
+
+    /**
+     * Uniform draws, except that a share of the samples move a box straight
+     * onto the goal coordinate of the chosen axis
+     */
+    static class GoalBiasedSampler extends UniformSampler {
+        static final double GOAL_BIAS = 0.2;
+        private final Vertex goal;
+
+        GoalBiasedSampler(Vertex goal, long seed) {
+            super(seed);
+            this.goal = goal;
+        }
+
+        @Override
+        ChangeLog next(StoredTree tree) {
+            if(random.nextDouble() >= GOAL_BIAS) {
+                return super.next(tree);
+            }
+            int nodeIndex = random.nextInt(tree.size());
+            int boxIndex = random.nextInt(tree.get(0).getMovingBoxes().size());
+            boolean indexType = random.nextBoolean();
+            Box target = goal.getMovingBoxes().get(boxIndex);
+            double newpos = indexType ? target.getPos().getX() : target.getPos().getY();
+            return new ChangeLog(nodeIndex, true, boxIndex, indexType, tree.object(nodeIndex, true, boxIndex), newpos);
+        }
+    }
+}
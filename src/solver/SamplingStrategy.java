@@ -0,0 +1,6 @@
+package solver;
+
+/** How RoadmapForBox draws its samples, named as on the command line */
+public enum SamplingStrategy {
+    uniform, halton, goal
+}
@@ -0,0 +1,269 @@
+package solver;
+
+import tester.Tester;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+/**
+ * Collision checks of the robot, a segment of the robot width that turns
+ * about its centre, against rectangles kept in a primitive array. Nothing
+ * is allocated, so the checks can run millions of times in a planner loop.
+ * Rectangle i is stored the way Rectangle2D.Double stores it: x, y, width
+ * and height at 4 * i.
+ *
+ * intersectsLine answers exactly as Tester does. It clips the segment
+ * against the rectangle grown by delta with the arithmetic of
+ * Rectangle2D.intersectsLine and Tester.grow. Pass MAX_ERROR where Tester
+ * grows a rectangle and -MAX_ERROR where it shrinks one. Touching counts as
+ * a hit, and a rectangle grown to nothing is never hit.
+ *
+ * The swept checks test the region a segment covers while it translates or
+ * turns. Up to rounding, they report a hit whenever a configuration along
+ * the way would. They always report one when either end does.
+ */
+final class SegmentKernel {
+    static final double MAX_ERROR = Tester.MAX_ERROR;
+
+    // outcodes of Rectangle2D
+    private static final int OUT_LEFT = 1, OUT_TOP = 2, OUT_RIGHT = 4, OUT_BOTTOM = 8;
+
+    private SegmentKernel() {
+    }
+
+    /** @return the bounds of rects, 4 values apiece */
+    static double[] bounds(List<? extends Rectangle2D> rects) {
+        double[] bounds = new double[rects.size() * 4];
+        for(int i = 0; i < rects.size(); i++) {
+            set(bounds, i, rects.get(i));
+        }
+        return bounds;
+    }
+
+    static void set(double[] rects, int i, Rectangle2D rect) {
+        rects[4 * i] = rect.getX();
+        rects[4 * i + 1] = rect.getY();
+        rects[4 * i + 2] = rect.getWidth();
+        rects[4 * i + 3] = rect.getHeight();
+    }
+
+    /**
+     * Tester's check of the segment (x1, y1) to (x2, y2) against
+     * grow(rect i, delta)
+     */
+    static boolean intersectsLine(double[] rects, int i, double delta,
+                                  double x1, double y1, double x2, double y2) {
+        int r = 4 * i;
+        return clip(rects[r] - delta, rects[r + 1] - delta, rects[r + 2] + 2 * delta, rects[r + 3] + 2 * delta,
+                x1, y1, x2, y2);
+    }
+
+    /** @return the first of count rectangles grown by delta the segment hits, -1 if none */
+    static int firstHit(double[] rects, int count, double delta, double x1, double y1, double x2, double y2) {
+        for(int i = 0; i < count; i++) {
+            if(intersectsLine(rects, i, delta, x1, y1, x2, y2)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check the robot centred at (x, y) at angle against count rectangles
+     * grown by delta, with its ends computed as Tester.getPoint1 and
+     * getPoint2 compute them
+     */
+    static boolean configHits(double[] rects, int count, double delta, double x, double y, double angle,
+                              double width) {
+        double dx = Math.cos(angle) * width * 0.5;
+        double dy = Math.sin(angle) * width * 0.5;
+        return firstHit(rects, count, delta, x - dx, y - dy, x + dx, y + dy) >= 0;
+    }
+
+    /**
+     * Check the parallelogram swept by the segment (x1, y1) to (x2, y2)
+     * translating by (dx, dy) against rect i grown by delta
+     */
+    static boolean translationHits(double[] rects, int i, double delta, double x1, double y1, double x2, double y2,
+                                   double dx, double dy) {
+        if(intersectsLine(rects, i, delta, x1, y1, x2, y2)
+                || intersectsLine(rects, i, delta, x1 + dx, y1 + dy, x2 + dx, y2 + dy)) {
+            return true;
+        }
+        int r = 4 * i;
+        double rw = rects[r + 2] + 2 * delta, rh = rects[r + 3] + 2 * delta;
+        if(rw <= 0 || rh <= 0) {
+            return false;
+        }
+        double minX = rects[r] - delta, minY = rects[r + 1] - delta;
+        double maxX = minX + rw, maxY = minY + rh;
+        // separating axes: x, y and the normals of the segment and of the move
+        if(Math.max(Math.max(x1, x2), Math.max(x1, x2) + dx) < minX
+                || Math.min(Math.min(x1, x2), Math.min(x1, x2) + dx) > maxX
+                || Math.max(Math.max(y1, y2), Math.max(y1, y2) + dy) < minY
+                || Math.min(Math.min(y1, y2), Math.min(y1, y2) + dy) > maxY) {
+            return false;
+        }
+        return overlapOnNormal(x2 - x1, y2 - y1, x1, y1, x2, y2, dx, dy, minX, minY, maxX, maxY)
+                && overlapOnNormal(dx, dy, x1, y1, x2, y2, dx, dy, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Check the robot turning about (x, y) from angle from to angle to
+     * against rect i grown by delta. The segment sweeps two opposite
+     * sectors of the disk of radius width / 2, the whole disk once it turns
+     * half a circle.
+     */
+    static boolean rotationHits(double[] rects, int i, double delta, double x, double y, double width,
+                                double from, double to) {
+        double fx = Math.cos(from) * width * 0.5, fy = Math.sin(from) * width * 0.5;
+        double tx = Math.cos(to) * width * 0.5, ty = Math.sin(to) * width * 0.5;
+        if(intersectsLine(rects, i, delta, x - fx, y - fy, x + fx, y + fy)
+                || intersectsLine(rects, i, delta, x - tx, y - ty, x + tx, y + ty)) {
+            return true;
+        }
+        int r = 4 * i;
+        double rw = rects[r + 2] + 2 * delta, rh = rects[r + 3] + 2 * delta;
+        if(rw <= 0 || rh <= 0) {
+            return false;
+        }
+        double minX = rects[r] - delta, minY = rects[r + 1] - delta;
+        double radius = width * 0.5;
+        double span = Math.abs(to - from);
+        if(span >= Math.PI) {
+            double cx = Math.max(minX, Math.min(x, minX + rw)) - x;
+            double cy = Math.max(minY, Math.min(y, minY + rh)) - y;
+            return cx * cx + cy * cy <= radius * radius;
+        }
+        double start = Math.min(from, to);
+        return sectorHits(x, y, radius, start, span, minX, minY, rw, rh)
+                || sectorHits(x, y, radius, start + Math.PI, span, minX, minY, rw, rh);
+    }
+
+    /**
+     * Check the sector of the disk of radius around (x, y) from angle start
+     * counterclockwise by span, less than PI, against a rectangle
+     */
+    private static boolean sectorHits(double x, double y, double radius, double start, double span,
+                                      double rx, double ry, double rw, double rh) {
+        double ax = Math.cos(start), ay = Math.sin(start);
+        double bx = Math.cos(start + span), by = Math.sin(start + span);
+        // a radius bounding the sector
+        if(clip(rx, ry, rw, rh, x, y, x + ax * radius, y + ay * radius)
+                || clip(rx, ry, rw, rh, x, y, x + bx * radius, y + by * radius)) {
+            return true;
+        }
+        // a corner of the rectangle inside the sector
+        double maxX = rx + rw, maxY = ry + rh;
+        if(inSector(rx - x, ry - y, radius, ax, ay, bx, by) || inSector(maxX - x, ry - y, radius, ax, ay, bx, by)
+                || inSector(rx - x, maxY - y, radius, ax, ay, bx, by)
+                || inSector(maxX - x, maxY - y, radius, ax, ay, bx, by)) {
+            return true;
+        }
+        // the arc crossing an edge of the rectangle
+        return arcCrossesX(rx - x, ry - y, maxY - y, radius, ax, ay, bx, by)
+                || arcCrossesX(maxX - x, ry - y, maxY - y, radius, ax, ay, bx, by)
+                || arcCrossesY(ry - y, rx - x, maxX - x, radius, ax, ay, bx, by)
+                || arcCrossesY(maxY - y, rx - x, maxX - x, radius, ax, ay, bx, by);
+    }
+
+    /** Does the arc cross the edge at x = ex from y0 to y1, relative to the centre */
+    private static boolean arcCrossesX(double ex, double y0, double y1, double radius,
+                                       double ax, double ay, double bx, double by) {
+        double d = radius * radius - ex * ex;
+        if(d < 0) {
+            return false;
+        }
+        double s = Math.sqrt(d);
+        return (s >= y0 && s <= y1 && inSector(ex, s, radius, ax, ay, bx, by))
+                || (-s >= y0 && -s <= y1 && inSector(ex, -s, radius, ax, ay, bx, by));
+    }
+
+    /** Does the arc cross the edge at y = ey from x0 to x1, relative to the centre */
+    private static boolean arcCrossesY(double ey, double x0, double x1, double radius,
+                                       double ax, double ay, double bx, double by) {
+        double d = radius * radius - ey * ey;
+        if(d < 0) {
+            return false;
+        }
+        double s = Math.sqrt(d);
+        return (s >= x0 && s <= x1 && inSector(s, ey, radius, ax, ay, bx, by))
+                || (-s >= x0 && -s <= x1 && inSector(-s, ey, radius, ax, ay, bx, by));
+    }
+
+    /**
+     * Is (vx, vy), relative to the centre, in the sector from direction a
+     * counterclockwise to direction b, less than PI apart
+     */
+    private static boolean inSector(double vx, double vy, double radius, double ax, double ay, double bx, double by) {
+        return vx * vx + vy * vy <= radius * radius
+                && ax * vy - ay * vx >= 0 && vx * by - vy * bx >= 0
+                && (ax + bx) * vx + (ay + by) * vy >= 0;
+    }
+
+    /**
+     * Do the projections of the swept parallelogram and of the rectangle on
+     * the normal of (ex, ey) overlap
+     */
+    private static boolean overlapOnNormal(double ex, double ey, double x1, double y1, double x2, double y2,
+                                           double dx, double dy,
+                                           double minX, double minY, double maxX, double maxY) {
+        double nx = -ey, ny = ex;
+        double p1 = x1 * nx + y1 * ny, p2 = x2 * nx + y2 * ny, move = dx * nx + dy * ny;
+        double lo = Math.min(Math.min(p1, p2), Math.min(p1, p2) + move);
+        double hi = Math.max(Math.max(p1, p2), Math.max(p1, p2) + move);
+        double centre = (minX + maxX) / 2 * nx + (minY + maxY) / 2 * ny;
+        double extent = Math.abs(nx) * (maxX - minX) / 2 + Math.abs(ny) * (maxY - minY) / 2;
+        return hi >= centre - extent && lo <= centre + extent;
+    }
+
+    /** Rectangle2D.intersectsLine of Rectangle2D.Double(rx, ry, rw, rh) */
+    private static boolean clip(double rx, double ry, double rw, double rh,
+                                double x1, double y1, double x2, double y2) {
+        int out1, out2;
+        if((out2 = outcode(rx, ry, rw, rh, x2, y2)) == 0) {
+            return true;
+        }
+        while((out1 = outcode(rx, ry, rw, rh, x1, y1)) != 0) {
+            if((out1 & out2) != 0) {
+                return false;
+            }
+            if((out1 & (OUT_LEFT | OUT_RIGHT)) != 0) {
+                double x = rx;
+                if((out1 & OUT_RIGHT) != 0) {
+                    x += rw;
+                }
+                y1 = y1 + (x - x1) * (y2 - y1) / (x2 - x1);
+                x1 = x;
+            } else {
+                double y = ry;
+                if((out1 & OUT_BOTTOM) != 0) {
+                    y += rh;
+                }
+                x1 = x1 + (y - y1) * (x2 - x1) / (y2 - y1);
+                y1 = y;
+            }
+        }
+        return true;
+    }
+
+    /** Rectangle2D.Double.outcode */
+    private static int outcode(double rx, double ry, double rw, double rh, double x, double y) {
+        int out = 0;
+        if(rw <= 0) {
+            out |= OUT_LEFT | OUT_RIGHT;
+        } else if(x < rx) {
+            out |= OUT_LEFT;
+        } else if(x > rx + rw) {
+            out |= OUT_RIGHT;
+        }
+        if(rh <= 0) {
+            out |= OUT_TOP | OUT_BOTTOM;
+        } else if(y < ry) {
+            out |= OUT_TOP;
+        } else if(y > ry + rh) {
+            out |= OUT_BOTTOM;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,146 @@
+package solver;
+
+import problem.ProblemSpec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes a solution file in the format read by ProblemSpec.loadSolution:
+ * the number of steps, then one line per step with the robot centre and
+ * angle, the centre of every moving box and the centre of every moving
+ * obstacle.
+ *
+ * Steps are produced by a StepInterpolator and formatted straight into a
+ * fixed size buffer that is flushed to the channel whenever it fills up, so
+ * memory use does not depend on the length of the solution.
+ */
+public class SolutionWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Room for the longest line of a single number */
+    private static final int MAX_NUMBER_LENGTH = 32;
+    private static final int DECIMALS = 9;
+    private static final long SCALE = 1000000000L;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    public SolutionWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /** Write the solution along path to the given file */
+    public static void write(ProblemSpec ps, List<Waypoint> path, String filename) throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            new SolutionWriter(channel).write(new StepInterpolator(ps, path));
+        }
+    }
+
+    /** Write every configuration of steps, then flush */
+    public void write(StepInterpolator steps) throws IOException {
+        putLong(steps.size());
+        putChar('\n');
+
+        double[] state = steps.state();
+        int numObjects = (state.length - 3) / 2;
+        double[] halfWidths = new double[numObjects];
+        for(int i = 0; i < numObjects; i++) {
+            halfWidths[i] = steps.getWidth(i) / 2;
+        }
+
+        while(steps.next()) {
+            putDouble(state[0]);
+            putChar(' ');
+            putDouble(state[1]);
+            putChar(' ');
+            putDouble(state[2]);
+            for(int i = 0; i < numObjects; i++) {
+                putChar(' ');
+                putDouble(state[3 + 2 * i] + halfWidths[i]);
+                putChar(' ');
+                putDouble(state[4 + 2 * i] + halfWidths[i]);
+            }
+            putChar('\n');
+        }
+        flush();
+    }
+
+    /** Write the buffered bytes to the channel */
+    public void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putChar(char c) throws IOException {
+        if(!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) c);
+    }
+
+    /**
+     * Fixed point with up to DECIMALS digits after the point and trailing
+     * zeros dropped, e.g. 0.1 is written as 0.1 and 2.0 as 2
+     */
+    private void putDouble(double v) throws IOException {
+        if(buffer.remaining() < MAX_NUMBER_LENGTH) {
+            flush();
+        }
+        long scaled = Math.round(Math.abs(v) * SCALE);
+        if(scaled != 0 && v < 0) {
+            buffer.put((byte) '-');
+        }
+        putDigits(scaled / SCALE);
+        long fraction = scaled % SCALE;
+        if(fraction == 0) {
+            return;
+        }
+        buffer.put((byte) '.');
+        int digits = DECIMALS;
+        while(fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        for(long p = pow10(digits - 1); p > 0; p /= 10) {
+            buffer.put((byte) ('0' + (fraction / p) % 10));
+        }
+    }
+
+    private void putLong(long v) throws IOException {
+        if(buffer.remaining() < MAX_NUMBER_LENGTH) {
+            flush();
+        }
+        if(v < 0) {
+            buffer.put((byte) '-');
+            v = -v;
+        }
+        putDigits(v);
+    }
+
+    private void putDigits(long v) {
+        long p = 1;
+        while(p <= v / 10) {
+            p *= 10;
+        }
+        for(; p > 0; p /= 10) {
+            buffer.put((byte) ('0' + (v / p) % 10));
+        }
+    }
+
+    private static long pow10(int n) {
+        long p = 1;
+        for(int i = 0; i < n; i++) {
+            p *= 10;
+        }
+        return p;
+    }
+}
@@ -0,0 +1,104 @@
+package solver;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JFR event solver.Solve for one planner run of a ParallelSolver, committed
+ * only when PlannerMetrics.JFR is set.
+ *
+ * The event type is defined at run time through jdk.jfr.EventFactory, which
+ * is looked up reflectively, so this class compiles against Java 8 and
+ * records nothing on a JVM without JFR.
+ */
+final class SolveEvent {
+    // field indices of the event, in the order of the value descriptors
+    private static final int SEED = 0, ITERATIONS = 1, TREE_SIZE = 2, OUTCOME = 3;
+
+    private static final Object factory; // jdk.jfr.EventFactory, null without JFR
+    private static final Method newEvent, begin, end, shouldCommit, set, commit;
+
+    static {
+        Object f = null;
+        Method[] methods = new Method[6];
+        if(PlannerMetrics.JFR) {
+            try {
+                Class<?> element = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> descriptor = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> label = Class.forName("jdk.jfr.Label");
+                Constructor<?> annotation = element.getConstructor(Class.class, Object.class);
+                Constructor<?> field = descriptor.getConstructor(Class.class, String.class, List.class);
+
+                List<Object> annotations = Arrays.asList(
+                        annotation.newInstance(Class.forName("jdk.jfr.Name"), "solver.Solve"),
+                        annotation.newInstance(label, "Planner Run"),
+                        annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[]{"Solver"}));
+                List<Object> fields = Arrays.asList(
+                        field.newInstance(long.class, "seed",
+                                Collections.singletonList(annotation.newInstance(label, "Seed"))),
+                        field.newInstance(int.class, "iterations",
+                                Collections.singletonList(annotation.newInstance(label, "Iterations"))),
+                        field.newInstance(int.class, "treeSize",
+                                Collections.singletonList(annotation.newInstance(label, "Tree Size"))),
+                        field.newInstance(String.class, "outcome",
+                                Collections.singletonList(annotation.newInstance(label, "Outcome"))));
+
+                Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+                Class<?> event = Class.forName("jdk.jfr.Event");
+                f = eventFactory.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+                methods = new Method[]{eventFactory.getMethod("newEvent"), event.getMethod("begin"),
+                        event.getMethod("end"), event.getMethod("shouldCommit"),
+                        event.getMethod("set", int.class, Object.class), event.getMethod("commit")};
+            } catch(ReflectiveOperationException | RuntimeException e) {
+                System.err.println("JFR events are not available: " + e);
+                f = null;
+            }
+        }
+        factory = f;
+        newEvent = methods[0];
+        begin = methods[1];
+        end = methods[2];
+        shouldCommit = methods[3];
+        set = methods[4];
+        commit = methods[5];
+    }
+
+    private SolveEvent() {
+    }
+
+    /** @return a started event, or null if JFR is not available */
+    static Object started() {
+        if(factory == null) {
+            return null;
+        }
+        try {
+            Object event = newEvent.invoke(factory);
+            begin.invoke(event);
+            return event;
+        } catch(ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /** Fill in and commit an event returned by started, if it is not null */
+    static void commit(Object started, long seed, int iterations, int treeSize, String outcome) {
+        if(started == null) {
+            return;
+        }
+        try {
+            end.invoke(started);
+            if((Boolean) shouldCommit.invoke(started)) {
+                set.invoke(started, SEED, seed);
+                set.invoke(started, ITERATIONS, iterations);
+                set.invoke(started, TREE_SIZE, treeSize);
+                set.invoke(started, OUTCOME, outcome);
+                commit.invoke(started);
+            }
+        } catch(ReflectiveOperationException e) {
+            // the event is lost, the solve goes on
+        }
+    }
+}
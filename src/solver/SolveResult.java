@@ -0,0 +1,77 @@
+package solver;
+
+/**
+ * The outcome of Roadmap.grow or Roadmap.solve. When the goal was not
+ * reached the vertex is the closest one the planner got to, see
+ * Roadmap.getClosest, so a caller that runs out of time still gets the
+ * boxes part of the way.
+ */
+public final class SolveResult {
+
+    /** Why the planner stopped */
+    public enum Status {
+        solved,    // the goal was reached
+        timeout,   // the time budget passed first
+        cancelled, // the token was cancelled first
+        exhausted  // the planner could not grow any further
+    }
+
+    public final Status status;
+    /** The solution if solved, otherwise the closest vertex reached */
+    public final Vertex vertex;
+    /** Calls of addNewVertex */
+    public final int iterations;
+    public final long nanos;
+
+    SolveResult(Status status, Vertex vertex, int iterations, long nanos) {
+        this.status = status;
+        this.vertex = vertex;
+        this.iterations = iterations;
+        this.nanos = nanos;
+    }
+
+    public boolean solved() {
+        return status == Status.solved;
+    }
+
+    /**
+     * Drive rm on the calling thread until it reaches the goal or token asks
+     * to stop
+     * @param keepImproving keep going after the goal is reached, for
+     * planners that improve their solution, which then stop only on the token
+     */
+    static SolveResult drive(Roadmap rm, CancellationToken token, boolean keepImproving) {
+        long start = System.nanoTime();
+        int iterations = 0;
+        Status status = null;
+        try {
+            while(status == null) {
+                if(token.stopRequested()) {
+                    status = stopped(rm, token, keepImproving);
+                } else {
+                    iterations++;
+                    if(rm.addNewVertex(rm.newVertex()) && !keepImproving) {
+                        status = Status.solved;
+                    }
+                }
+            }
+        } catch (InsertFailedException e) {
+            // a sampler that stops early on the token gives up the same way
+            status = token.stopRequested() ? stopped(rm, token, keepImproving)
+                    : keepImproving && rm.getSolution() != null ? Status.solved : Status.exhausted;
+        }
+        Vertex v = status == Status.solved ? rm.getSolution() : rm.getClosest();
+        return new SolveResult(status, v, iterations, System.nanoTime() - start);
+    }
+
+    private static Status stopped(Roadmap rm, CancellationToken token, boolean keepImproving) {
+        if(keepImproving && rm.getSolution() != null) {
+            return Status.solved;
+        }
+        return token.isCancelled() ? Status.cancelled : Status.timeout;
+    }
+
+    public String toString() {
+        return String.format("%s after %d iterations, %.1f ms", status, iterations, nanos / 1e6);
+    }
+}
@@ -0,0 +1,23 @@
+package solver;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads Roadmap.solve grows maps on. Every running solve has a thread
+ * of its own, so a solve neither waits for nor holds up the tasks of the
+ * common pool. The threads are daemons and do not keep the JVM alive.
+ */
+final class SolveThreads {
+    private static final AtomicInteger count = new AtomicInteger();
+
+    static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "solve-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SolveThreads() {
+    }
+}
@@ -0,0 +1,265 @@
+package solver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import problem.ProblemFormatException;
+import problem.ProblemSpec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long lived solver behind a plain HTTP endpoint, so that callers pay for
+ * JVM startup and JIT warm up once instead of on every problem.
+ *
+ * POST /solve with a problem file as the body answers with the solution
+ * file, or with a status line saying why there is none. The query may set
+ * timeout (milliseconds, at most the budget of the server) and seed.
+ * GET /health answers with the number of solves running and waiting.
+ *
+ * Every request gets a thread of its own, a virtual thread when the JVM has
+ * them and a thread of a fixed pool otherwise. Admission control keeps the
+ * process responsive: at most maxRunning solves run at the same time, at
+ * most maxWaiting more wait for a turn, anything beyond that is turned away
+ * at once with 503.
+ */
+public class SolverServer {
+    /** Largest problem body accepted */
+    static final long MAX_BODY = 16 << 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final int maxRunning;
+    private final int maxWaiting;
+    private final Duration budget;
+    private final SamplingStrategy strategy;
+    private final AtomicLong seeds = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param address where to listen, port 0 picks a free one
+     * @param maxRunning the number of solves that may run at the same time
+     * @param maxWaiting the number of requests that may wait for a solve to end
+     * @param budget the longest a search may take
+     */
+    public SolverServer(InetSocketAddress address, int maxRunning, int maxWaiting, Duration budget,
+                        SamplingStrategy strategy) throws IOException {
+        this.maxRunning = maxRunning;
+        this.maxWaiting = maxWaiting;
+        this.budget = budget;
+        this.strategy = strategy;
+        admitted = new Semaphore(maxRunning + maxWaiting);
+        running = new Semaphore(maxRunning, true);
+        executor = requestExecutor(maxRunning + maxWaiting + 1);
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/solve", this::solve);
+        server.createContext("/health", this::health);
+    }
+
+    /**
+     * @return an executor that runs every task on a new virtual thread, or a
+     * pool of fallbackThreads threads before Java 21
+     */
+    static ExecutorService requestExecutor(int fallbackThreads) {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(fallbackThreads);
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stop accepting requests, wait up to delay seconds for the running ones */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        int solving = maxRunning - running.availablePermits();
+        int waiting = maxRunning + maxWaiting - admitted.availablePermits() - solving;
+        respond(exchange, 200, String.format("ok running %d/%d waiting %d/%d%n",
+                solving, maxRunning, Math.max(0, waiting), maxWaiting));
+    }
+
+    private void solve(HttpExchange exchange) throws IOException {
+        try {
+            if(!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "POST a problem file\n");
+                return;
+            }
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            if(length != null && Long.parseLong(length) > MAX_BODY) {
+                respond(exchange, 413, "problem larger than " + MAX_BODY + " bytes\n");
+                return;
+            }
+            if(!admitted.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "busy\n");
+                return;
+            }
+            try {
+                running.acquire();
+                try {
+                    solveAdmitted(exchange);
+                } finally {
+                    running.release();
+                }
+            } finally {
+                admitted.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "shutting down\n");
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, "bad number: " + e.getMessage() + "\n");
+        } catch (RuntimeException e) {
+            if(exchange.getResponseCode() < 0) {
+                respond(exchange, 500, e + "\n");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void solveAdmitted(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        URI uri = exchange.getRequestURI();
+        String timeout = queryParameter(uri, "timeout");
+        Duration limit = timeout == null ? budget : Duration.ofMillis(Long.parseLong(timeout));
+        if(limit.compareTo(budget) > 0) {
+            limit = budget;
+        }
+        String seedParameter = queryParameter(uri, "seed");
+        long seed = seedParameter == null ? seeds.incrementAndGet() : Long.parseLong(seedParameter);
+        CancellationToken token = new CancellationToken(limit);
+
+        ProblemSpec ps = new ProblemSpec();
+        try(BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.US_ASCII))) {
+            ps.loadProblem(reader);
+        } catch (ProblemFormatException e) {
+            respond(exchange, 400, e.getMessage() + "\n");
+            return;
+        }
+
+        RoadmapCache cache = RoadmapCache.inMemory(ps);
+        RoadmapForBox rm = new RoadmapForBox(ps, seed, strategy, cache);
+        SolveResult result = rm.grow(token);
+        exchange.getResponseHeaders().set("X-Solve-Status", result.status.name());
+        exchange.getResponseHeaders().set("X-Tree-Size", Integer.toString(rm.size()));
+        if(!result.solved()) {
+            respond(exchange, 422, result + "\n");
+            return;
+        }
+        List<Waypoint> path;
+        try {
+            Vertex solution = new PathShortcutter(rm, seed).shorten(rm.getSolution());
+            path = new RobotPlanner(ps, cache).plan(solution);
+        } catch (RobotPathNotFoundException e) {
+            exchange.getResponseHeaders().set("X-Solve-Status", "noRobotPath");
+            respond(exchange, 422, e.getMessage() + "\n");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.getResponseHeaders().set("X-Solve-Millis",
+                Long.toString(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        // length 0: the solution is streamed in chunks as it is written
+        exchange.sendResponseHeaders(200, 0);
+        try(OutputStream body = exchange.getResponseBody()) {
+            new SolutionWriter(Channels.newChannel(body)).write(new StepInterpolator(ps, path));
+        }
+    }
+
+    /** @return the value of name in the query of uri, null if absent */
+    static String queryParameter(URI uri, String name) {
+        String query = uri.getQuery();
+        if(query == null) {
+            return null;
+        }
+        for(String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if(eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try(OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    /**
+     * Serve until the JVM is stopped.
+     * @param args anywhere --port=n (8080 by default), --host=address
+     * (127.0.0.1 by default), --running=n solves at a time (the number of
+     * processors by default), --waiting=n requests waiting for a turn (4
+     * times that by default), --timeout=seconds for the longest search (30
+     * by default) and --sampler=uniform|halton|goal
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        String host = "127.0.0.1";
+        int maxRunning = Runtime.getRuntime().availableProcessors();
+        int maxWaiting = -1;
+        double timeout = 30;
+        SamplingStrategy strategy = SamplingStrategy.uniform;
+        for(String arg : args) {
+            if(arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if(arg.startsWith("--host=")) {
+                host = arg.substring("--host=".length());
+            } else if(arg.startsWith("--running=")) {
+                maxRunning = Integer.parseInt(arg.substring("--running=".length()));
+            } else if(arg.startsWith("--waiting=")) {
+                maxWaiting = Integer.parseInt(arg.substring("--waiting=".length()));
+            } else if(arg.startsWith("--timeout=")) {
+                timeout = Double.parseDouble(arg.substring("--timeout=".length()));
+            } else if(arg.startsWith("--sampler=")) {
+                strategy = SamplingStrategy.valueOf(arg.substring("--sampler=".length()));
+            } else {
+                System.out.println("Unknown argument " + arg);
+                return;
+            }
+        }
+        if(maxWaiting < 0) {
+            maxWaiting = 4 * maxRunning;
+        }
+        SolverServer server = new SolverServer(new InetSocketAddress(host, port), maxRunning, maxWaiting,
+                Duration.ofMillis((long) (timeout * 1000)), strategy);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        server.start();
+        System.out.println("Listening on " + server.getAddress());
+    }
+}
@@ -0,0 +1,263 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the unit workspace used as a broadphase for collision
+ * checks. Every object is identified by an int id and stored in each cell its
+ * bounding rectangle touches, so a query only has to look at the objects that
+ * share a cell with the query rectangle instead of the whole scene.
+ *
+ * Overlap follows the semantics of Rectangle2D.intersects: touching edges do
+ * not count as a collision and empty objects never overlap. A query
+ * rectangle may be degenerate, a zero width rectangle is tested as a line
+ * segment against the open interior of the objects.
+ */
+final class SpatialGrid {
+    private final int resolution;
+    private final double cellSize;
+
+    // cell contents, indexed by cy * resolution + cx
+    private final int[][] cells;
+    private final int[] cellCounts;
+
+    // bounds and covered cell range per object id
+    private final double[] minX, minY, maxX, maxY;
+    private final int[] cellX0, cellY0, cellX1, cellY1;
+    private final boolean[] present;
+
+    // stamps used to test every candidate only once per query
+    private final int[] marks;
+    private int stamp;
+
+    /**
+     * @param resolution number of cells along each axis
+     * @param capacity the number of distinct object ids
+     */
+    SpatialGrid(int resolution, int capacity) {
+        this.resolution = resolution;
+        this.cellSize = 1.0 / resolution;
+        cells = new int[resolution * resolution][];
+        cellCounts = new int[resolution * resolution];
+        minX = new double[capacity];
+        minY = new double[capacity];
+        maxX = new double[capacity];
+        maxY = new double[capacity];
+        cellX0 = new int[capacity];
+        cellY0 = new int[capacity];
+        cellX1 = new int[capacity];
+        cellY1 = new int[capacity];
+        present = new boolean[capacity];
+        marks = new int[capacity];
+    }
+
+    /**
+     * Choose a resolution so a moving object of the given width covers at
+     * most a couple of cells along each axis
+     */
+    static int resolutionFor(double width) {
+        if(width <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.min(64, (int) (1 / width)));
+    }
+
+    /** Insert object id with the given bounds, replacing its old bounds if present */
+    void put(int id, double x0, double y0, double x1, double y1) {
+        int cx0 = cell(x0), cy0 = cell(y0), cx1 = cell(x1), cy1 = cell(y1);
+        if(present[id]) {
+            if(cx0 == cellX0[id] && cy0 == cellY0[id] && cx1 == cellX1[id] && cy1 == cellY1[id]) {
+                // same cells, only the bounds changed
+                setBounds(id, x0, y0, x1, y1);
+                return;
+            }
+            remove(id);
+        }
+        setBounds(id, x0, y0, x1, y1);
+        cellX0[id] = cx0;
+        cellY0[id] = cy0;
+        cellX1[id] = cx1;
+        cellY1[id] = cy1;
+        for(int cy = cy0; cy <= cy1; cy++) {
+            for(int cx = cx0; cx <= cx1; cx++) {
+                add(cy * resolution + cx, id);
+            }
+        }
+        present[id] = true;
+    }
+
+    /** Remove object id from the grid */
+    void remove(int id) {
+        if(!present[id]) {
+            return;
+        }
+        for(int cy = cellY0[id]; cy <= cellY1[id]; cy++) {
+            for(int cx = cellX0[id]; cx <= cellX1[id]; cx++) {
+                int c = cy * resolution + cx;
+                int[] content = cells[c];
+                int n = cellCounts[c];
+                for(int k = 0; k < n; k++) {
+                    if(content[k] == id) {
+                        content[k] = content[n - 1];
+                        cellCounts[c] = n - 1;
+                        break;
+                    }
+                }
+            }
+        }
+        present[id] = false;
+    }
+
+    /**
+     * Check whether the given rectangle overlaps any object in the grid
+     * @param exclude an id to ignore, or -1
+     * @return true if some object other than exclude overlaps the rectangle
+     */
+    boolean overlapsAny(double x0, double y0, double x1, double y1, int exclude) {
+        if(x1 < x0 || y1 < y0) {
+            return false;
+        }
+        int cx0 = cell(x0), cy0 = cell(y0), cx1 = cell(x1), cy1 = cell(y1);
+        int s = nextStamp();
+        for(int cy = cy0; cy <= cy1; cy++) {
+            for(int cx = cx0; cx <= cx1; cx++) {
+                int c = cy * resolution + cx;
+                int[] content = cells[c];
+                for(int k = cellCounts[c] - 1; k >= 0; k--) {
+                    int id = content[k];
+                    if(id == exclude || marks[id] == s) continue;
+                    marks[id] = s;
+                    if(overlaps(id, x0, y0, x1, y1)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collect the objects whose bounds overlap or touch the given rectangle,
+     * for a narrow phase that is not a rectangle overlap
+     * @param out receives the ids, at least as long as the grid's capacity
+     * @return the number of ids written to out
+     */
+    int candidates(double x0, double y0, double x1, double y1, int[] out) {
+        int cx0 = cell(x0), cy0 = cell(y0), cx1 = cell(x1), cy1 = cell(y1);
+        int s = nextStamp();
+        int count = 0;
+        for(int cy = cy0; cy <= cy1; cy++) {
+            for(int cx = cx0; cx <= cx1; cx++) {
+                int c = cy * resolution + cx;
+                int[] content = cells[c];
+                for(int k = cellCounts[c] - 1; k >= 0; k--) {
+                    int id = content[k];
+                    if(marks[id] == s) continue;
+                    marks[id] = s;
+                    if(x0 <= maxX[id] && minX[id] <= x1 && y0 <= maxY[id] && minY[id] <= y1) {
+                        out[count++] = id;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find how far the rectangle can translate along one axis before its
+     * swept area overlaps an object in the grid. The rectangle itself must
+     * not overlap anything. Objects touching the rectangle do not block a
+     * move away from them.
+     * @param alongX move along x if set, along y otherwise
+     * @param travel the signed length of the move
+     * @param exclude an id to ignore, or -1
+     * @return the longest free move in the direction of travel, no longer
+     * than travel itself
+     */
+    double freeTravel(double x0, double y0, double x1, double y1, boolean alongX,
+                      double travel, int exclude) {
+        if(travel == 0) {
+            return 0;
+        }
+        double limit = Math.abs(travel);
+        // cells covered by the swept area
+        double sx0 = x0, sy0 = y0, sx1 = x1, sy1 = y1;
+        if(alongX) {
+            if(travel > 0) sx1 += limit; else sx0 -= limit;
+        } else {
+            if(travel > 0) sy1 += limit; else sy0 -= limit;
+        }
+        int cx0 = cell(sx0), cy0 = cell(sy0), cx1 = cell(sx1), cy1 = cell(sy1);
+        int s = nextStamp();
+        for(int cy = cy0; cy <= cy1; cy++) {
+            for(int cx = cx0; cx <= cx1; cx++) {
+                int c = cy * resolution + cx;
+                int[] content = cells[c];
+                for(int k = cellCounts[c] - 1; k >= 0; k--) {
+                    int id = content[k];
+                    if(id == exclude || marks[id] == s) continue;
+                    marks[id] = s;
+                    if(maxX[id] <= minX[id] || maxY[id] <= minY[id]) continue;
+                    double gap;
+                    if(alongX) {
+                        if(!(y0 < maxY[id] && minY[id] < y1)) continue; // beside the path
+                        gap = travel > 0 ? minX[id] - x1 : x0 - maxX[id];
+                    } else {
+                        if(!(x0 < maxX[id] && minX[id] < x1)) continue;
+                        gap = travel > 0 ? minY[id] - y1 : y0 - maxY[id];
+                    }
+                    if(gap < 0) {
+                        if(alongX ? (x0 < maxX[id] && minX[id] < x1) : (y0 < maxY[id] && minY[id] < y1)) {
+                            return 0; // already overlapping
+                        }
+                        continue; // behind the rectangle
+                    }
+                    if(gap < limit) {
+                        limit = gap;
+                    }
+                }
+            }
+        }
+        return travel > 0 ? limit : -limit;
+    }
+
+    private boolean overlaps(int id, double x0, double y0, double x1, double y1) {
+        return maxX[id] > minX[id] && maxY[id] > minY[id]
+                && x0 < maxX[id] && minX[id] < x1
+                && y0 < maxY[id] && minY[id] < y1;
+    }
+
+    private void setBounds(int id, double x0, double y0, double x1, double y1) {
+        minX[id] = x0;
+        minY[id] = y0;
+        maxX[id] = x1;
+        maxY[id] = y1;
+    }
+
+    private void add(int c, int id) {
+        int[] content = cells[c];
+        if(content == null) {
+            content = cells[c] = new int[4];
+        } else if(cellCounts[c] == content.length) {
+            content = cells[c] = Arrays.copyOf(content, content.length * 2);
+        }
+        content[cellCounts[c]++] = id;
+    }
+
+    private int nextStamp() {
+        if(++stamp == 0) {
+            // wrapped around, old marks may collide with new stamps
+            Arrays.fill(marks, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    /** Cell index of a coordinate, clamped to the workspace */
+    private int cell(double v) {
+        int c = (int) Math.floor(v / cellSize);
+        if(c < 0) return 0;
+        if(c >= resolution) return resolution - 1;
+        return c;
+    }
+}
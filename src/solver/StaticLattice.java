@@ -0,0 +1,152 @@
+package solver;
+
+import problem.StaticObstacle;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+/**
+ * The edges of the robot lattice of RobotPlanner that the static obstacles
+ * and the border of the workspace leave free.
+ *
+ * Nodes are numbered as in RobotPlanner, (j * n + i) * 2 + (vertical ? 1 : 0)
+ * for the robot centre at (i * step, j * step). A set bit in moveX means the
+ * robot can translate from the node to its neighbour at i + 1, in moveY to
+ * the neighbour at j + 1. The two rotate bits of a position tell which
+ * quarter turns in place are free: the bit of the horizontal node the turn
+ * between angles 0 and PI / 2, the bit of the vertical node the turn
+ * between PI / 2 and PI, both up to multiples of PI. A clear bit rules the
+ * edge out, a set bit still has to be checked against the moving objects.
+ */
+final class StaticLattice {
+    private final int n;
+    private final double step;
+    private final double half;
+    private final long[] moveX;
+    private final long[] moveY;
+    private final long[] rotate;
+
+    /** Restore a lattice saved with getBits, see RoadmapCache */
+    StaticLattice(int n, double step, double half, long[] moveX, long[] moveY, long[] rotate) {
+        this.n = n;
+        this.step = step;
+        this.half = half;
+        this.moveX = moveX;
+        this.moveY = moveY;
+        this.rotate = rotate;
+    }
+
+    StaticLattice(List<StaticObstacle> obstacles, double robotWidth, double step) {
+        this.step = step;
+        this.half = robotWidth / 2;
+        n = (int) Math.round(1 / step) + 1;
+        int states = n * n * 2;
+        moveX = new long[(states + 63) >>> 6];
+        moveY = new long[(states + 63) >>> 6];
+        rotate = new long[(states + 63) >>> 6];
+
+        SpatialGrid grid = new SpatialGrid(SpatialGrid.resolutionFor(robotWidth), obstacles.size());
+        double[] rects = new double[4 * obstacles.size()];
+        for(int i = 0; i < obstacles.size(); i++) {
+            Rectangle2D rect = obstacles.get(i).getRect();
+            double c = RobotPlanner.STATIC_CLEARANCE;
+            grid.put(i, rect.getMinX() - c, rect.getMinY() - c, rect.getMaxX() + c, rect.getMaxY() + c);
+            SegmentKernel.set(rects, i, rect);
+        }
+        int[] candidates = new int[obstacles.size()];
+        for(int j = 0; j < n; j++) {
+            for(int i = 0; i < n; i++) {
+                double x = i * step, y = j * step;
+                boolean inside = x - half >= 0 && y - half >= 0 && x + half < 1 && y + half < 1;
+                for(int v = 0; v < 2; v++) {
+                    int node = (j * n + i) * 2 + v;
+                    boolean vertical = v == 1;
+                    if(i + 1 < n && free(grid, x, y, x + step, y, vertical)) {
+                        set(moveX, node);
+                    }
+                    if(j + 1 < n && free(grid, x, y, x, y + step, vertical)) {
+                        set(moveY, node);
+                    }
+                    if(inside && turnFree(grid, rects, candidates, x, y, v * Math.PI / 2)) {
+                        set(rotate, node);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Same test as RobotPlanner.translationFree against the static obstacles only */
+    private boolean free(SpatialGrid grid, double x1, double y1, double x2, double y2, boolean vertical) {
+        double ex = vertical ? 0 : half;
+        double ey = vertical ? half : 0;
+        double x0 = Math.min(x1, x2) - ex, xx = Math.max(x1, x2) + ex;
+        double y0 = Math.min(y1, y2) - ey, yy = Math.max(y1, y2) + ey;
+        if(x0 < 0 || y0 < 0 || xx >= 1 || yy >= 1) {
+            return false;
+        }
+        return !grid.overlapsAny(x0, y0, xx, yy, -1);
+    }
+
+    /**
+     * Same test as RobotPlanner.turnFree against the static obstacles only,
+     * for the quarter turn from angle from
+     */
+    private boolean turnFree(SpatialGrid grid, double[] rects, int[] candidates, double x, double y, double from) {
+        int count = grid.candidates(x - half, y - half, x + half, y + half, candidates);
+        for(int k = 0; k < count; k++) {
+            if(SegmentKernel.rotationHits(rects, candidates[k], RobotPlanner.STATIC_CLEARANCE, x, y, 2 * half,
+                    from, from + Math.PI / 2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /** @return true if the lattice matches a planner with these parameters */
+    boolean matches(double robotWidth, double step) {
+        return this.half == robotWidth / 2 && this.step == step;
+    }
+
+    /** Can the robot at node move to the node at i + 1 */
+    boolean canMoveX(int node) {
+        return get(moveX, node);
+    }
+
+    /** Can the robot at node move to the node at j + 1 */
+    boolean canMoveY(int node) {
+        return get(moveY, node);
+    }
+
+    /**
+     * Can the robot at the position of node turn in place between angles
+     * PI / 2 and PI if high is set, between 0 and PI / 2 otherwise
+     */
+    boolean canTurn(int node, boolean high) {
+        return get(rotate, (node & ~1) | (high ? 1 : 0));
+    }
+
+    int getN() {
+        return n;
+    }
+
+    double getStep() {
+        return step;
+    }
+
+    double getHalf() {
+        return half;
+    }
+
+    /** @return moveX, moveY and rotate, not to be modified */
+    long[][] getBits() {
+        return new long[][]{moveX, moveY, rotate};
+    }
+}
@@ -0,0 +1,91 @@
+package solver;
+
+import problem.StaticObstacle;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+/**
+ * A bitset over the unit workspace that marks where the bottom-left corner
+ * of a square of one width can never be placed because of the static
+ * obstacles.
+ *
+ * The workspace is split into resolution x resolution cells and a cell is
+ * marked only if every corner position inside it puts the square inside a
+ * single static obstacle, so a marked cell rejects a placement without any
+ * geometry while an unmarked cell still needs the exact check.
+ */
+final class StaticRaster {
+    static final int DEFAULT_RESOLUTION = 256;
+
+    private final int resolution;
+    private final double width;
+    private final long[] blocked;
+
+    /** Restore a raster saved with getBits, see RoadmapCache */
+    StaticRaster(double width, int resolution, long[] blocked) {
+        this.resolution = resolution;
+        this.width = width;
+        this.blocked = blocked;
+    }
+
+    StaticRaster(List<StaticObstacle> obstacles, double width, int resolution) {
+        this.resolution = resolution;
+        this.width = width;
+        blocked = new long[(resolution * resolution + 63) >>> 6];
+        for(StaticObstacle obstacle : obstacles) {
+            mark(obstacle.getRect());
+        }
+    }
+
+    /** Mark the cells inside the corner positions where the square overlaps rect */
+    private void mark(Rectangle2D rect) {
+        // the square overlaps rect iff its corner lies in the open region
+        // (minX - width, maxX) x (minY - width, maxY)
+        double x0 = rect.getMinX() - width, x1 = rect.getMaxX();
+        double y0 = rect.getMinY() - width, y1 = rect.getMaxY();
+        if(rect.getWidth() <= 0 || rect.getHeight() <= 0) {
+            return; // empty obstacles never overlap
+        }
+        int cx0 = Math.max(0, (int) Math.floor(x0 * resolution));
+        int cx1 = Math.min(resolution - 1, (int) Math.ceil(x1 * resolution));
+        int cy0 = Math.max(0, (int) Math.floor(y0 * resolution));
+        int cy1 = Math.min(resolution - 1, (int) Math.ceil(y1 * resolution));
+        for(int cy = cy0; cy <= cy1; cy++) {
+            if(!(y0 < (double) cy / resolution && (double) (cy + 1) / resolution < y1)) continue;
+            for(int cx = cx0; cx <= cx1; cx++) {
+                if(!(x0 < (double) cx / resolution && (double) (cx + 1) / resolution < x1)) continue;
+                int bit = cy * resolution + cx;
+                blocked[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    /** @return the width of the squares this raster is for */
+    double getWidth() {
+        return width;
+    }
+
+    int getResolution() {
+        return resolution;
+    }
+
+    /** @return the marked cells, row by row, not to be modified */
+    long[] getBits() {
+        return blocked;
+    }
+
+    /**
+     * @return true if a square with its bottom-left corner at (x, y) is
+     * known to overlap a static obstacle
+     */
+    boolean isBlocked(double x, double y) {
+        int cx = (int) (x * resolution);
+        int cy = (int) (y * resolution);
+        if(cx < 0 || cy < 0 || cx >= resolution || cy >= resolution) {
+            return false;
+        }
+        int bit = cy * resolution + cx;
+        return (blocked[bit >>> 6] & (1L << bit)) != 0;
+    }
+}
@@ -0,0 +1,143 @@
+package solver;
+
+import problem.Box;
+import problem.ProblemSpec;
+import tester.Tester;
+
+import java.util.List;
+
+/**
+ * Expands a waypoint path into primitive steps, one configuration at a time.
+ *
+ * Every segment between two waypoints is split into the fewest equal steps
+ * in which no end of the robot moves more than Tester.MAX_BASE_STEP. The
+ * configuration is kept in one array that is updated in place, so walking a
+ * path of millions of steps allocates nothing.
+ */
+public final class StepInterpolator {
+    private final List<Waypoint> path;
+    private final double half;
+    private final int numBoxes;
+    private final int[] steps; // steps[k] for the segment ending at waypoint k
+    private final long size;
+
+    /**
+     * robot x, y and angle followed by the x and y of the bottom-left
+     * corner of every moving box, then of every moving obstacle
+     */
+    private final double[] state;
+    private final double[] widths;
+
+    private int segment = 0;
+    private int step = 0;
+    private double fromX, fromY; // pushed object at the start of the segment
+
+    public StepInterpolator(ProblemSpec ps, List<Waypoint> path) {
+        this.path = path;
+        half = ps.getRobotWidth() / 2;
+        numBoxes = ps.getMovingBoxes().size();
+        int numObjects = numBoxes + ps.getMovingObstacles().size();
+        state = new double[3 + 2 * numObjects];
+        widths = new double[numObjects];
+        for(int i = 0; i < numObjects; i++) {
+            Box box = i < numBoxes ? ps.getMovingBoxes().get(i) : ps.getMovingObstacles().get(i - numBoxes);
+            widths[i] = box.getWidth();
+            state[3 + 2 * i] = box.getPos().getX();
+            state[4 + 2 * i] = box.getPos().getY();
+        }
+
+        steps = new int[path.size()];
+        long total = 1;
+        for(int k = 1; k < path.size(); k++) {
+            steps[k] = stepsBetween(path.get(k - 1), path.get(k));
+            total += steps[k];
+        }
+        size = total;
+    }
+
+    private int stepsBetween(Waypoint a, Waypoint b) {
+        double dx = b.robotX - a.robotX;
+        double dy = b.robotY - a.robotY;
+        // an end of the robot moves at most this far
+        double travel = Math.sqrt(dx * dx + dy * dy) + half * Math.abs(b.angle - a.angle);
+        return (int) Math.ceil(travel / Tester.MAX_BASE_STEP);
+    }
+
+    /** @return the number of configurations, including the initial one */
+    public long size() {
+        return size;
+    }
+
+    /** @return the number of moving boxes, which come first in the state */
+    public int getNumBoxes() {
+        return numBoxes;
+    }
+
+    /** @return the width of moving object i, boxes first then obstacles */
+    public double getWidth(int i) {
+        return widths[i];
+    }
+
+    /**
+     * Advance to the next configuration, the first call yields the initial
+     * configuration
+     * @return false once the path is exhausted
+     */
+    public boolean next() {
+        if(segment == 0) {
+            Waypoint first = path.get(0);
+            state[0] = first.robotX;
+            state[1] = first.robotY;
+            state[2] = first.angle;
+            segment = 1;
+            step = 0;
+            beginSegment();
+            return true;
+        }
+        while(segment < path.size() && step == steps[segment]) {
+            segment++;
+            step = 0;
+            beginSegment();
+        }
+        if(segment >= path.size()) {
+            return false;
+        }
+
+        step++;
+        Waypoint a = path.get(segment - 1);
+        Waypoint b = path.get(segment);
+        if(step == steps[segment]) {
+            // land exactly on the waypoint
+            state[0] = b.robotX;
+            state[1] = b.robotY;
+            state[2] = b.angle;
+            if(b.movedIndex >= 0) {
+                state[3 + 2 * b.movedIndex] = b.movedX;
+                state[4 + 2 * b.movedIndex] = b.movedY;
+            }
+        } else {
+            double t = (double) step / steps[segment];
+            state[0] = a.robotX + (b.robotX - a.robotX) * t;
+            state[1] = a.robotY + (b.robotY - a.robotY) * t;
+            state[2] = a.angle + (b.angle - a.angle) * t;
+            if(b.movedIndex >= 0) {
+                state[3 + 2 * b.movedIndex] = fromX + (b.movedX - fromX) * t;
+                state[4 + 2 * b.movedIndex] = fromY + (b.movedY - fromY) * t;
+            }
+        }
+        return true;
+    }
+
+    private void beginSegment() {
+        if(segment < path.size() && path.get(segment).movedIndex >= 0) {
+            int k = path.get(segment).movedIndex;
+            fromX = state[3 + 2 * k];
+            fromY = state[4 + 2 * k];
+        }
+    }
+
+    /** @return the current configuration, updated in place by next() */
+    public double[] state() {
+        return state;
+    }
+}
@@ -0,0 +1,250 @@
+package solver;
+
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+
+import java.awt.geom.Point2D;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A tree of vertices kept in a TreeStore. Vertex i is node i of the store.
+ *
+ * Unless the tree retains its vertices, only the root and a cache of
+ * recently used vertices are kept as objects. get rebuilds any other vertex
+ * as a single move from its parent, itself taken from the cache or rebuilt
+ * first, so a rebuild shares all but the moved object with the parent and
+ * carries its heuristic over as planned vertices do. The cache is direct
+ * mapped by node and holds the vertices most recently added or rebuilt.
+ * Two rebuilds of the same node may be different objects, compare them with
+ * Vertex.sameNode.
+ *
+ * Nearest neighbour queries do not rebuild vertices. They read the rows of
+ * a store that has them. Otherwise the squared distance of a node to the
+ * query is that of its parent changed by the one moved object, and is kept
+ * for the length of the query, so a query reads each node it visits and
+ * their ancestors at most once.
+ *
+ * A tree that retains its vertices returns the objects that were added,
+ * whose parent and cost the planner may change, and reads only the
+ * configurations back from the store.
+ */
+final class StoredTree extends AbstractList<Vertex> implements RandomAccess, KdTree.Points {
+    /** Vertices cached by a tree that does not retain them, a power of two */
+    static final int CACHE = 1 << 12;
+
+    private final TreeStore store;
+    private final List<Vertex> retained; // null if vertices are rebuilt
+    private final Vertex[] cache;
+    private Vertex root;
+    private int numBoxes;
+    // nodes on the way down from a cached ancestor, for rebuild and squaredDistance
+    private int[] pending = new int[16];
+    // squared distances to the current query, valid where distanceQuery holds its number
+    private double[] distances = new double[16];
+    private int[] distanceQuery = new int[16];
+    private int queries;
+
+    /**
+     * @param store an empty store of the dimension of the vertices to add
+     * @param retain keep the added vertices instead of rebuilding them
+     */
+    StoredTree(TreeStore store, boolean retain) {
+        this.store = store;
+        this.retained = retain ? new ArrayList<Vertex>() : null;
+        this.cache = retain ? null : new Vertex[CACHE];
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public Vertex get(int node) {
+        if(retained != null) {
+            return retained.get(node);
+        }
+        if(node == 0) {
+            return root;
+        }
+        if(node < 0 || node >= store.size()) {
+            throw new IndexOutOfBoundsException("node " + node + " of " + store.size());
+        }
+        Vertex v = cached(node);
+        return v != null ? v : rebuild(node);
+    }
+
+    /**
+     * Append v, the first vertex becomes the root and every later one must
+     * be the child of a vertex of this tree
+     */
+    @Override
+    public boolean add(Vertex v) {
+        Vertex parent = v.getParent();
+        int parentNode = -1;
+        int object = -1;
+        if(parent != null) {
+            if(parent.tree != this) {
+                throw new IllegalArgumentException("parent is not in this tree");
+            }
+            parentNode = parent.node;
+            ChangeLog log = v.getLog();
+            object = log.boxType ? log.boxIndex : log.boxIndex + numBoxes;
+        } else if(store.size() != 0) {
+            throw new IllegalArgumentException("only the root has no parent");
+        }
+        v.tree = this;
+        v.node = store.add(parentNode, object, v);
+        if(v.node == 0) {
+            root = v;
+            numBoxes = v.getMovingBoxes().size();
+        }
+        if(retained != null) {
+            retained.add(v);
+        } else {
+            cache[v.node & (CACHE - 1)] = v;
+        }
+        return true;
+    }
+
+    /** @return the parent of node, or null for the root */
+    Vertex parentOf(int node) {
+        int parent = store.parent(node);
+        return parent < 0 ? null : get(parent);
+    }
+
+    /** @return the index of the parent of node, -1 for the root */
+    int parentNode(int node) {
+        return store.parent(node);
+    }
+
+    /**
+     * @return moving box index of node, or moving obstacle index if not
+     * boxType, read from the cache or the store without rebuilding node
+     */
+    Box object(int node, boolean boxType, int index) {
+        Vertex v = retained != null ? retained.get(node) : node == 0 ? root : cached(node);
+        if(v != null) {
+            return boxType ? v.getMovingBoxes().get(index) : v.getMovingObstacles().get(index);
+        }
+        // the last node on the way up that moved the object, which holds the box
+        int object = boxType ? index : numBoxes + index;
+        int n = node;
+        while(n > 0 && store.object(n) != object) {
+            n = store.parent(n);
+            if((v = n == 0 ? root : cached(n)) != null) {
+                return boxType ? v.getMovingBoxes().get(index) : v.getMovingObstacles().get(index);
+            }
+        }
+        double width = (boxType ? root.getMovingBoxes() : root.getMovingObstacles()).get(index).getWidth();
+        Point2D pos = new Point2D.Double(store.x(n), store.y(n));
+        return boxType ? new MovingBox(pos, width) : new MovingObstacle(pos, width);
+    }
+
+    @Override
+    public int dimension() {
+        return store.dimension;
+    }
+
+    @Override
+    public double coordinate(int node, int d) {
+        return store.hasRows() ? store.coordinate(node, d) : get(node).coordinate(d);
+    }
+
+    @Override
+    public void query(double[] query) {
+        if(store.hasRows()) {
+            return;
+        }
+        if(++queries == 0) {
+            Arrays.fill(distanceQuery, 0); // wrapped around, forget every distance
+            queries = 1;
+        }
+        double dist = 0.0;
+        for(int d = 0; d < query.length; d++) {
+            double diff = store.rootCoordinate(d) - query[d];
+            dist += diff * diff;
+        }
+        remember(0, dist);
+    }
+
+    @Override
+    public double squaredDistance(int node, double[] query) {
+        if(store.hasRows()) {
+            return store.squaredDistance(node, query);
+        }
+        int count = 0;
+        for(int n = node; n >= distanceQuery.length || distanceQuery[n] != queries; n = store.parent(n)) {
+            if(count == pending.length) {
+                pending = Arrays.copyOf(pending, count * 2);
+            }
+            pending[count++] = n;
+        }
+        while(count > 0) {
+            int n = pending[--count];
+            int object = store.object(n);
+            double qx = query[2 * object], qy = query[2 * object + 1];
+            double fx = store.fromX(n) - qx, fy = store.fromY(n) - qy;
+            double tx = store.x(n) - qx, ty = store.y(n) - qy;
+            remember(n, distances[store.parent(n)] - fx * fx - fy * fy + tx * tx + ty * ty);
+        }
+        return distances[node];
+    }
+
+    private void remember(int node, double dist) {
+        if(node >= distances.length) {
+            int n = Math.max(node + 1, distances.length * 2);
+            distances = Arrays.copyOf(distances, n);
+            distanceQuery = Arrays.copyOf(distanceQuery, n);
+        }
+        distances[node] = dist;
+        distanceQuery[node] = queries;
+    }
+
+    private Vertex cached(int node) {
+        Vertex v = cache[node & (CACHE - 1)];
+        return v != null && v.node == node ? v : null;
+    }
+
+    /** Rebuild node and the nodes above it up to one that is cached */
+    private Vertex rebuild(int node) {
+        int count = 0;
+        Vertex v = null;
+        for(int n = node; v == null; n = store.parent(n)) {
+            if(count == pending.length) {
+                pending = Arrays.copyOf(pending, count * 2);
+            }
+            pending[count++] = n;
+            v = store.parent(n) == 0 ? root : cached(store.parent(n));
+        }
+        while(count > 0) {
+            v = child(v, pending[--count]);
+            cache[v.node & (CACHE - 1)] = v;
+        }
+        return v;
+    }
+
+    /** Rebuild node as the move from parent the store records for it */
+    private Vertex child(Vertex parent, int node) {
+        int object = store.object(node);
+        boolean boxType = object < numBoxes;
+        int index = boxType ? object : object - numBoxes;
+        Box oldBox = boxType ? parent.getMovingBoxes().get(index) : parent.getMovingObstacles().get(index);
+        Point2D pos = new Point2D.Double(store.x(node), store.y(node));
+        boolean alongX = oldBox.getPos().getX() != pos.getX();
+        ChangeLog log = new ChangeLog(parent.node, boxType, index, alongX, oldBox,
+                alongX ? pos.getX() : pos.getY());
+        Box newBox = boxType ? new MovingBox(pos, oldBox.getWidth()) : new MovingObstacle(pos, oldBox.getWidth());
+        Vertex v = parent.newVertexSingleMove(log, newBox);
+        v.setParent(null); // found through the tree again, so cached vertices keep no chain of ancestors
+        v.setCost(store.cost(node));
+        v.tree = this;
+        v.node = node;
+        return v;
+    }
+}
@@ -0,0 +1,338 @@
+package solver;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The nodes of a search tree as plain numbers, in the order they were
+ * added. Per node it keeps the index of the parent (-1 for the root), the
+ * object that moved from the parent (boxes first, then obstacles, -1 for the
+ * root), the cost of the node and where the moved object came from and went.
+ * The configuration of the root is kept whole, so a node costs the same few
+ * bytes however many objects the scene has. Any other configuration is the
+ * root with the moves on the way down applied, see StoredTree.
+ *
+ * Scenes of at most MAX_ROW coordinates also keep the configuration of every
+ * node whole. Such a row costs no more than a few of the fields above, and
+ * nearest neighbour queries read it faster than they replay moves.
+ *
+ * A store on the heap keeps one array per field. A direct store keeps fixed
+ * size records in direct buffers of CHUNK nodes each, so large trees
+ * neither count against the heap nor get traced by the collector.
+ */
+abstract class TreeStore {
+    static final int MAX_ROW = 16;
+
+    final int dimension;
+    // coordinates kept per node, dimension or 0
+    final int row;
+    int size;
+    // configuration of the root, laid out as in Vertex.coordinate
+    private final double[] root;
+
+    private TreeStore(int dimension) {
+        this.dimension = dimension;
+        row = dimension <= MAX_ROW ? dimension : 0;
+        root = new double[dimension];
+    }
+
+    /** A store backed by arrays on the heap */
+    static TreeStore onHeap(int dimension) {
+        return new HeapStore(dimension);
+    }
+
+    /** A store backed by direct buffers outside the heap */
+    static TreeStore direct(int dimension) {
+        return new DirectStore(dimension);
+    }
+
+    /**
+     * Append v
+     * @param parent the node v is a child of, the node of v.getParent(), or -1
+     * @param object the object that moved from parent to v, or -1
+     * @return the index of the new node
+     */
+    int add(int parent, int object, Vertex v) {
+        int node = size;
+        ensureCapacity(node + 1);
+        if(object < 0) {
+            for(int d = 0; d < dimension; d++) {
+                root[d] = v.coordinate(d);
+            }
+            set(node, parent, object, v.getCost(), 0, 0, 0, 0);
+        } else {
+            Vertex from = v.getParent();
+            set(node, parent, object, v.getCost(), from.coordinate(2 * object), from.coordinate(2 * object + 1),
+                    v.coordinate(2 * object), v.coordinate(2 * object + 1));
+        }
+        for(int d = 0; d < row; d++) {
+            setCoordinate(node, d, v.coordinate(d));
+        }
+        size++;
+        return node;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Coordinate d of the root, as Vertex.coordinate */
+    double rootCoordinate(int d) {
+        return root[d];
+    }
+
+    /** @return true if coordinate can read any node */
+    boolean hasRows() {
+        return row != 0;
+    }
+
+    /** Coordinate d of node as Vertex.coordinate, only if hasRows */
+    abstract double coordinate(int node, int d);
+
+    /** Squared distance from node to the coordinates in query, only if hasRows */
+    abstract double squaredDistance(int node, double[] query);
+
+    abstract int parent(int node);
+
+    abstract int object(int node);
+
+    abstract double cost(int node);
+
+    /** @return where the moved object of node came from, along x */
+    abstract double fromX(int node);
+
+    /** @return where the moved object of node came from, along y */
+    abstract double fromY(int node);
+
+    /** @return where the moved object of node went, along x */
+    abstract double x(int node);
+
+    /** @return where the moved object of node went, along y */
+    abstract double y(int node);
+
+    /** @return the bytes held for the nodes, used or not */
+    abstract long capacityBytes();
+
+    abstract void ensureCapacity(int nodes);
+
+    abstract void set(int node, int parent, int object, double cost, double fromX, double fromY,
+                      double x, double y);
+
+    abstract void setCoordinate(int node, int d, double value);
+
+    static final class HeapStore extends TreeStore {
+        private int[] parents = new int[16];
+        private int[] objects = new int[16];
+        private double[] costs = new double[16];
+        private double[] fromXs = new double[16];
+        private double[] fromYs = new double[16];
+        private double[] xs = new double[16];
+        private double[] ys = new double[16];
+        private double[] coordinates;
+
+        HeapStore(int dimension) {
+            super(dimension);
+            coordinates = new double[16 * row];
+        }
+
+        @Override
+        int parent(int node) {
+            return parents[node];
+        }
+
+        @Override
+        int object(int node) {
+            return objects[node];
+        }
+
+        @Override
+        double cost(int node) {
+            return costs[node];
+        }
+
+        @Override
+        double fromX(int node) {
+            return fromXs[node];
+        }
+
+        @Override
+        double fromY(int node) {
+            return fromYs[node];
+        }
+
+        @Override
+        double x(int node) {
+            return xs[node];
+        }
+
+        @Override
+        double y(int node) {
+            return ys[node];
+        }
+
+        @Override
+        double coordinate(int node, int d) {
+            return coordinates[node * row + d];
+        }
+
+        @Override
+        double squaredDistance(int node, double[] query) {
+            double dist = 0.0;
+            for(int d = 0, i = node * row; d < row; d++, i++) {
+                double diff = coordinates[i] - query[d];
+                dist += diff * diff;
+            }
+            return dist;
+        }
+
+        @Override
+        long capacityBytes() {
+            return (long) parents.length * (4 + 4 + 8 * 5) + 8L * coordinates.length;
+        }
+
+        @Override
+        void ensureCapacity(int nodes) {
+            if(nodes <= parents.length) {
+                return;
+            }
+            int n = Math.max(nodes, parents.length * 2);
+            parents = Arrays.copyOf(parents, n);
+            objects = Arrays.copyOf(objects, n);
+            costs = Arrays.copyOf(costs, n);
+            fromXs = Arrays.copyOf(fromXs, n);
+            fromYs = Arrays.copyOf(fromYs, n);
+            xs = Arrays.copyOf(xs, n);
+            ys = Arrays.copyOf(ys, n);
+            coordinates = Arrays.copyOf(coordinates, n * row);
+        }
+
+        @Override
+        void set(int node, int parent, int object, double cost, double fromX, double fromY,
+                 double x, double y) {
+            parents[node] = parent;
+            objects[node] = object;
+            costs[node] = cost;
+            fromXs[node] = fromX;
+            fromYs[node] = fromY;
+            xs[node] = x;
+            ys[node] = y;
+        }
+
+        @Override
+        void setCoordinate(int node, int d, double value) {
+            coordinates[node * row + d] = value;
+        }
+    }
+
+    static final class DirectStore extends TreeStore {
+        /** Nodes per buffer, a power of two */
+        static final int CHUNK = 1 << 14;
+        private static final int SHIFT = Integer.numberOfTrailingZeros(CHUNK);
+
+        // record: int parent, int object, double cost, double fromX, fromY, x, y, double[row]
+        private static final int FIELDS = 48;
+        private final int record;
+        private ByteBuffer[] chunks = new ByteBuffer[4];
+        private int allocated;
+
+        DirectStore(int dimension) {
+            super(dimension);
+            record = FIELDS + 8 * row;
+        }
+
+        private ByteBuffer chunk(int node) {
+            return chunks[node >>> SHIFT];
+        }
+
+        private int offset(int node) {
+            return (node & (CHUNK - 1)) * record;
+        }
+
+        @Override
+        int parent(int node) {
+            return chunk(node).getInt(offset(node));
+        }
+
+        @Override
+        int object(int node) {
+            return chunk(node).getInt(offset(node) + 4);
+        }
+
+        @Override
+        double cost(int node) {
+            return chunk(node).getDouble(offset(node) + 8);
+        }
+
+        @Override
+        double fromX(int node) {
+            return chunk(node).getDouble(offset(node) + 16);
+        }
+
+        @Override
+        double fromY(int node) {
+            return chunk(node).getDouble(offset(node) + 24);
+        }
+
+        @Override
+        double x(int node) {
+            return chunk(node).getDouble(offset(node) + 32);
+        }
+
+        @Override
+        double y(int node) {
+            return chunk(node).getDouble(offset(node) + 40);
+        }
+
+        @Override
+        double coordinate(int node, int d) {
+            return chunk(node).getDouble(offset(node) + FIELDS + 8 * d);
+        }
+
+        @Override
+        double squaredDistance(int node, double[] query) {
+            ByteBuffer chunk = chunk(node);
+            int offset = offset(node) + FIELDS;
+            double dist = 0.0;
+            for(int d = 0; d < row; d++) {
+                double diff = chunk.getDouble(offset + 8 * d) - query[d];
+                dist += diff * diff;
+            }
+            return dist;
+        }
+
+        @Override
+        long capacityBytes() {
+            return (long) allocated * CHUNK * record;
+        }
+
+        @Override
+        void ensureCapacity(int nodes) {
+            while((long) allocated * CHUNK < nodes) {
+                if(allocated == chunks.length) {
+                    chunks = Arrays.copyOf(chunks, allocated * 2);
+                }
+                chunks[allocated++] = ByteBuffer.allocateDirect(CHUNK * record).order(ByteOrder.nativeOrder());
+            }
+        }
+
+        @Override
+        void set(int node, int parent, int object, double cost, double fromX, double fromY,
+                 double x, double y) {
+            ByteBuffer chunk = chunk(node);
+            int offset = offset(node);
+            chunk.putInt(offset, parent);
+            chunk.putInt(offset + 4, object);
+            chunk.putDouble(offset + 8, cost);
+            chunk.putDouble(offset + 16, fromX);
+            chunk.putDouble(offset + 24, fromY);
+            chunk.putDouble(offset + 32, x);
+            chunk.putDouble(offset + 40, y);
+        }
+
+        @Override
+        void setCoordinate(int node, int d, double value) {
+            chunk(node).putDouble(offset(node) + FIELDS + 8 * d, value);
+        }
+    }
+}
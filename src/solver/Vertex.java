@@ -5,21 +5,49 @@ import problem.MovingBox;
 import problem.MovingObstacle;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 
 public class Vertex {
 
     private Vertex parent;
     private ChangeLog cLog;
+    // total distance the objects moved on the way from the root
+    private double cost;
+    // sum of QuantizedKey.term over all coordinates
+    private long quantizedHash;
+    // heuristic towards heuristicGoal, null until first asked for
+    private Vertex heuristicGoal;
+    private double heuristic;
 
-    //current configuration
-    private List<Box> movingBoxes;
-    private List<Box> movingObstacles;
+    //current configuration, shared with the parent except for the moved box
+    private PersistentBoxList movingBoxes;
+    private PersistentBoxList movingObstacles;
+
+    // the tree this vertex is stored in and its node there, null and -1 if none
+    StoredTree tree;
+    int node = -1;
 
     public Vertex getParent() {
+        if(parent == null && tree != null && node > 0) {
+            parent = tree.parentOf(node); // rebuilt on first use
+        }
         return parent;
     }
 
+    /** @return true if this and v are the same object or stand for the same node of a tree */
+    boolean sameNode(Vertex v) {
+        return this == v || (tree != null && v.tree == tree && v.node == node);
+    }
+
+    /** @return true if p is the parent of this vertex, without rebuilding a stored parent */
+    boolean isChildOf(Vertex p) {
+        if(parent != null) {
+            return parent.sameNode(p);
+        }
+        return tree != null && node > 0 && p.tree == tree && tree.parentNode(node) == p.node;
+    }
+
     public ChangeLog getLog() {
         return cLog;
     }
@@ -28,72 +56,141 @@ public class Vertex {
         this.parent = parent;
     }
 
+    double getCost() {
+        return cost;
+    }
+
+    void setCost(double cost) {
+        this.cost = cost;
+    }
+
+    /**
+     * Hang this vertex under another parent it is a single move away from
+     * @param log the move from the new parent to this vertex
+     */
+    void rewire(Vertex parent, ChangeLog log) {
+        this.parent = parent;
+        this.cLog = log;
+    }
+
+    /** @return the vertices from the root of the tree down to this one */
+    List<Vertex> pathFromRoot() {
+        LinkedList<Vertex> path = new LinkedList<>();
+        for(Vertex v = this; v != null; v = v.getParent()) {
+            path.addFirst(v);
+        }
+        return new ArrayList<>(path);
+    }
+
     Vertex(List<Box> movingBoxes, List<Box> movingObstacles) {
-        this.movingBoxes = new ArrayList<>(movingBoxes);
-        this.movingObstacles = new ArrayList<>(movingObstacles);
-        parent = null;
-        cLog = null;
+        this(PersistentBoxList.of(movingBoxes), PersistentBoxList.of(movingObstacles), null);
+        initQuantizedHash();
     }
 
     Vertex(List<Box> movingBoxes) {
-        this.movingBoxes = new ArrayList<>(movingBoxes);
-        this.movingObstacles = null;
-        parent = null;
-        cLog = null;
+        this(PersistentBoxList.of(movingBoxes), null, null);
+        initQuantizedHash();
     }
 
-    Vertex(List<Box> movingBoxes, List<Box> movingObstacles, ChangeLog log) {
-        this.movingBoxes = new ArrayList<>(movingBoxes);
-        this.movingObstacles = new ArrayList<>(movingObstacles);
+    private void initQuantizedHash() {
+        for(int d = 0; d < dimension(); d++) {
+            quantizedHash += QuantizedKey.term(d, coordinate(d));
+        }
+    }
+
+    /** Hash of the configuration quantised to QuantizedKey.QUANTUM */
+    long quantizedHash() {
+        return quantizedHash;
+    }
+
+    /** The hash of this configuration with the object at coordinate d moved from oldBox to newBox */
+    private long movedHash(int d, Box oldBox, Box newBox) {
+        return quantizedHash
+                - QuantizedKey.term(d, oldBox.getPos().getX()) - QuantizedKey.term(d + 1, oldBox.getPos().getY())
+                + QuantizedKey.term(d, newBox.getPos().getX()) + QuantizedKey.term(d + 1, newBox.getPos().getY());
+    }
+
+    private Vertex(PersistentBoxList movingBoxes, PersistentBoxList movingObstacles, ChangeLog log) {
+        this.movingBoxes = movingBoxes;
+        this.movingObstacles = movingObstacles;
         parent = null;
         cLog = log;
     }
 
     public Vertex newVertexSingleMove(ChangeLog log, Box newBox) {
-        List<Box> movingBox = new ArrayList<>(movingBoxes);
-        List<Box> movingObs = new ArrayList<>(movingObstacles);
-
+        Vertex v;
         if(log.boxType) {
-            movingBox.set(log.boxIndex, newBox);
+            v = new Vertex(movingBoxes.with(log.boxIndex, newBox), movingObstacles, log);
         } else {
-            movingObs.set(log.boxIndex, newBox);
+            v = new Vertex(movingBoxes, movingObstacles.with(log.boxIndex, newBox), log);
         }
-        Vertex v = new Vertex(movingBox, movingObs, log);
         v.setParent(this);
+        v.cost = cost + moveLength(log.oldBox, newBox);
+        int d = 2 * (log.boxType ? log.boxIndex : movingBoxes.size() + log.boxIndex);
+        v.quantizedHash = movedHash(d, log.oldBox, newBox);
+        inheritHeuristic(v, log.boxType, log.boxIndex, log.oldBox, newBox);
         return v;
     }
 
     public Vertex newVertexSingleMove(int index, MovingBox newBox) {
-        List<Box> movingBox = new ArrayList<>(movingBoxes);
-        Box oldBox = movingBox.get(index);
-        movingBox.set(index, newBox);
+        Box oldBox = movingBoxes.get(index);
         ChangeLog log = new ChangeLog(index, (MovingBox)oldBox, newBox);
-        Vertex v = new Vertex(movingBox, movingObstacles, log);
+        Vertex v = new Vertex(movingBoxes.with(index, newBox), movingObstacles, log);
         v.setParent(this);
+        v.cost = cost + moveLength(oldBox, newBox);
+        v.quantizedHash = movedHash(2 * index, oldBox, newBox);
+        inheritHeuristic(v, true, index, oldBox, newBox);
         return v;
     }
 
     public Vertex newVertexSingleMove(int index, MovingObstacle newBox) {
-        List<Box> movingObs = new ArrayList<>(movingObstacles);
-        Box oldBox = movingObs.get(index);
-        movingObs.set(index, newBox);
+        Box oldBox = movingObstacles.get(index);
         ChangeLog log = new ChangeLog(index, (MovingObstacle)oldBox, newBox);
-        Vertex v = new Vertex(movingBoxes, movingObs, log);
+        Vertex v = new Vertex(movingBoxes, movingObstacles.with(index, newBox), log);
         v.setParent(this);
+        v.cost = cost + moveLength(oldBox, newBox);
+        v.quantizedHash = movedHash(2 * (movingBoxes.size() + index), oldBox, newBox);
+        inheritHeuristic(v, false, index, oldBox, newBox);
         return v;
     }
 
-    public double heuristic(Vertex goal) {
-        double h = 0.0;
+    /** Distance an object travels from a to b along the axes */
+    static double moveLength(Box a, Box b) {
+        return Math.abs(a.getPos().getX() - b.getPos().getX())
+                + Math.abs(a.getPos().getY() - b.getPos().getY());
+    }
 
-        for(Box boxCurr : movingBoxes) {
-            double minv = Double.MAX_VALUE;
-            for(Box boxGoal : goal.getMovingBoxes()) {
-                minv = Math.min(minv, boxCurr.getPos().distance(boxGoal.getPos()));
+    /**
+     * Sum of the distances from every moving box to its own goal, box i
+     * belongs at box i of goal. Computed once for the first vertex that is
+     * asked and carried over to its descendants one moved box at a time.
+     */
+    public double heuristic(Vertex goal) {
+        if(goal != heuristicGoal) {
+            double h = 0.0;
+            for(int i = 0; i < movingBoxes.size(); i++) {
+                h += goalDistance(goal, i, movingBoxes.get(i));
             }
-            h += minv;
+            heuristic = h;
+            heuristicGoal = goal;
+        }
+        return heuristic;
+    }
+
+    private static double goalDistance(Vertex goal, int index, Box box) {
+        return box.getPos().distance(goal.movingBoxes.get(index).getPos());
+    }
+
+    /** Give child v, which differs from this vertex by the given move, the heuristic of this one */
+    private void inheritHeuristic(Vertex v, boolean boxType, int index, Box oldBox, Box newBox) {
+        if(heuristicGoal == null) {
+            return;
+        }
+        v.heuristicGoal = heuristicGoal;
+        v.heuristic = heuristic;
+        if(boxType) {
+            v.heuristic += goalDistance(heuristicGoal, index, newBox) - goalDistance(heuristicGoal, index, oldBox);
         }
-        return h;
     }
 
     public List<Box> getMovingBoxes() {
@@ -104,8 +201,57 @@ public class Vertex {
         return movingObstacles;
     }
 
+    /**
+     * Euclidean distance in configuration space, i.e. over the bottom-left
+     * corners of every moving box and moving obstacle
+     */
     public double distanceTo(Vertex v) {
-        return -1;
+        return Math.sqrt(squaredDistanceTo(v));
+    }
+
+    double squaredDistanceTo(Vertex v) {
+        double d = squaredDistance(movingBoxes, v.movingBoxes);
+        if(movingObstacles != null && v.movingObstacles != null) {
+            d += squaredDistance(movingObstacles, v.movingObstacles);
+        }
+        return d;
+    }
+
+    private static double squaredDistance(List<Box> a, List<Box> b) {
+        double d = 0.0;
+        for(int i = 0; i < a.size(); i++) {
+            Box boxA = a.get(i);
+            Box boxB = b.get(i);
+            if(boxA == boxB) continue; // shared with a common ancestor
+            double dx = boxA.getPos().getX() - boxB.getPos().getX();
+            double dy = boxA.getPos().getY() - boxB.getPos().getY();
+            d += dx * dx + dy * dy;
+        }
+        return d;
+    }
+
+    /** Number of coordinates of this configuration */
+    int dimension() {
+        int n = movingBoxes.size();
+        if(movingObstacles != null) {
+            n += movingObstacles.size();
+        }
+        return 2 * n;
+    }
+
+    /**
+     * Coordinate d of the flattened configuration: x and y of each moving
+     * box, followed by x and y of each moving obstacle
+     */
+    double coordinate(int d) {
+        int index = d >> 1;
+        Box box;
+        if(index < movingBoxes.size()) {
+            box = movingBoxes.get(index);
+        } else {
+            box = movingObstacles.get(index - movingBoxes.size());
+        }
+        return (d & 1) == 0 ? box.getPos().getX() : box.getPos().getY();
     }
 
 }
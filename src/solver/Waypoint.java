@@ -0,0 +1,36 @@
+package solver;
+
+/**
+ * One corner of a robot trajectory. Between two waypoints the robot moves
+ * linearly in position and angle, and if the later waypoint pushes an object
+ * that object moves linearly with it from where it was to its new position.
+ */
+public final class Waypoint {
+    /** The robot centre and orientation at this waypoint */
+    public final double robotX, robotY, angle;
+    /**
+     * Index of the object pushed on the way to this waypoint, moving boxes
+     * first then moving obstacles, or -1 if the robot moves on its own
+     */
+    public final int movedIndex;
+    /** Bottom-left corner of the pushed object at this waypoint */
+    public final double movedX, movedY;
+
+    Waypoint(double robotX, double robotY, double angle) {
+        this(robotX, robotY, angle, -1, 0, 0);
+    }
+
+    Waypoint(double robotX, double robotY, double angle, int movedIndex, double movedX, double movedY) {
+        this.robotX = robotX;
+        this.robotY = robotY;
+        this.angle = angle;
+        this.movedIndex = movedIndex;
+        this.movedX = movedX;
+        this.movedY = movedY;
+    }
+
+    public String toString() {
+        return "(" + robotX + ", " + robotY + ", " + angle + ")"
+                + (movedIndex < 0 ? "" : " pushing " + movedIndex + " to (" + movedX + ", " + movedY + ")");
+    }
+}
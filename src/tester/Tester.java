@@ -71,7 +71,7 @@ public class Tester {
         List<Box> finalState = ps.getMovingBoxPath().get(ps.getMovingBoxPath().size() - 1);
         int count = 0;
         for (int i = 0; i < finalState.size(); i++){
-            if (finalState.get(i).getPos() == ps.getMovingBoxEndPositions().get(i)) {
+            if (finalState.get(i).getPos().distance(ps.getMovingBoxEndPositions().get(i)) <= MAX_ERROR) {
                 count++;
             }
         }
@@ -123,7 +123,7 @@ public class Tester {
         List<Box> movingObstacles = ps.getMovingObstacles();
         List<List<Box>> movingObstaclePath = ps.getMovingObstaclePath();
         for (int i = 0; i < movingObstacles.size(); i++) {
-            if (!movingObstacles.get(i).getPos().equals(movingObstaclePath.get(i).get(0).getPos())) {
+            if (!movingObstacles.get(i).getPos().equals(movingObstaclePath.get(0).get(i).getPos())) {
                 return false;
             }
         }
@@ -267,13 +267,13 @@ public class Tester {
         if (boxdy > MAX_ERROR) {
             actualDirection = 1;
             moved++;
-        } else if (boxdy < MAX_ERROR) {
+        } else if (boxdy < -MAX_ERROR) {
             actualDirection = 3;
             moved++;
         } else if (boxdx > MAX_ERROR) {
             actualDirection = 2;
             moved++;
-        } else if (boxdx < MAX_ERROR) {
+        } else if (boxdx < -MAX_ERROR) {
             actualDirection = 4;
             moved++;
         }
@@ -310,7 +310,7 @@ public class Tester {
     }
 
     /**
-     * Normalises an angle to the range (2pi, 4pi]
+     * Normalises an angle to the range (0, 2pi]
      *
      * @param angle
      *            the angle to normalise.
@@ -326,6 +326,19 @@ public class Tester {
         return angle;
     }
 
+    /**
+     * Normalises the orientation of a robot to the range
+     * (2pi - angleError, 4pi - angleError], so that each of the four axis
+     * aligned orientations and the angles within angleError of it fall in
+     * one interval around 2pi, 2.5pi, 3pi or 3.5pi.
+     *
+     * @param r the robot.
+     * @return the normalised orientation.
+     */
+    private double alignedOrientation(RobotConfig r) {
+        return normaliseAngle(r.getOrientation() + angleError) - angleError + 2 * Math.PI;
+    }
+
     /**
      * Checks if a given robot is axis aligned.
      * @param r the robot
@@ -352,7 +365,7 @@ public class Tester {
     public int isCoupled(RobotConfig r, Box b) {
         Point2D p1,p2;
 
-        double angle = normaliseAngle(r.getOrientation());
+        double angle = alignedOrientation(r);
         boolean horizontal;
         if (angle >= Math.PI * 2 - angleError && angle <= Math.PI * 2 + angleError) {
             p1 = getPoint1(r);
@@ -436,7 +449,7 @@ public class Tester {
      * @return true if no, false if yes
      */
     public boolean testGapSliding(RobotConfig r, List<Box> movingObjects) {
-        double angle = normaliseAngle(r.getOrientation());
+        double angle = alignedOrientation(r);
         Point2D p1,p2,r1,r2;
         p1 = getPoint1(r);
         p2 = getPoint2(r);
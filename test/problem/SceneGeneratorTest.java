@@ -0,0 +1,69 @@
+package problem;
+
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SceneGeneratorTest {
+
+    @Test
+    public void sameSeedSameScene() {
+        SceneGenerator generator = new SceneGenerator(20, 10, 0.3, false);
+        assertEquals(generator.generate(5), generator.generate(5));
+        assertNotEquals(generator.generate(5), generator.generate(6));
+    }
+
+    @Test
+    public void scenesLoadWithoutOverlaps() throws IOException {
+        for(boolean solvable : new boolean[]{false, true}) {
+            SceneGenerator generator = new SceneGenerator(40, 25, 0.5, solvable);
+            for(long seed = 0; seed < 5; seed++) {
+                ProblemSpec ps = new ProblemSpec();
+                ps.loadProblem(new StringReader(generator.generate(seed)));
+                assertEquals(40, ps.getMovingBoxes().size());
+                assertEquals(25, ps.getMovingObstacles().size());
+
+                double w = ps.getRobotWidth();
+                List<Rectangle2D> rects = new ArrayList<>();
+                for(Box box : ps.getMovingBoxes()) {
+                    rects.add(box.getRect());
+                }
+                for(Point2D goal : ps.getMovingBoxEndPositions()) {
+                    rects.add(new Rectangle2D.Double(goal.getX(), goal.getY(), w, w));
+                }
+                for(Box obstacle : ps.getMovingObstacles()) {
+                    rects.add(obstacle.getRect());
+                }
+                for(StaticObstacle obstacle : ps.getStaticObstacles()) {
+                    rects.add(obstacle.getRect());
+                }
+                Rectangle2D unit = new Rectangle2D.Double(0, 0, 1, 1);
+                for(int i = 0; i < rects.size(); i++) {
+                    assertTrue(unit.contains(rects.get(i)));
+                    for(int j = i + 1; j < rects.size(); j++) {
+                        assertFalse(rects.get(i).intersects(rects.get(j)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void solvableGoalsAreOneStraightPushAway() throws IOException {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem(new StringReader(new SceneGenerator(30, 10, 0.2, true).generate(1)));
+        for(int i = 0; i < ps.getMovingBoxes().size(); i++) {
+            Point2D start = ps.getMovingBoxes().get(i).getPos();
+            Point2D goal = ps.getMovingBoxEndPositions().get(i);
+            assertEquals(start.getY(), goal.getY(), 0.0);
+            assertTrue(goal.getX() > start.getX());
+        }
+    }
+}
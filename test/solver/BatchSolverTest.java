@@ -0,0 +1,62 @@
+package solver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import problem.SceneGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BatchSolverTest {
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("solutions");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try(Stream<Path> files = Files.list(dir)) {
+            for(Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    /** Solve problem with seed and check that Tester accepts the solution */
+    private void solvesAndPasses(BatchSolver solver, Path problem, long seed) {
+        BatchSolver.Report report = solver.solve(problem, dir.resolve("solution.txt"), seed);
+        assertEquals(problem + " with seed " + seed + ": " + report.message,
+                BatchSolver.Status.solved, report.status);
+        assertTrue(problem + " with seed " + seed + ": " + report.message, report.passed);
+    }
+
+    @Test
+    public void solutionsPassTesterForSeveralSeeds() {
+        // robot paths used to slide through gaps between touching objects
+        BatchSolver solver = new BatchSolver(1, 30, TimeUnit.SECONDS, dir, 0, SamplingStrategy.uniform, false);
+        for(String input : new String[]{"input1.txt", "input2.txt", "input3.txt"}) {
+            for(long seed : new long[]{1, 3, 7, 11, 13}) {
+                solvesAndPasses(solver, Paths.get(input), seed);
+            }
+        }
+    }
+
+    @Test
+    public void solvesGeneratedSolvableScene() throws IOException {
+        // every box a short push from its goal, more boxes than CLOSE_HEURISTIC allows for
+        Path problem = dir.resolve("scene.txt");
+        new SceneGenerator(10, 5, 0.3, true).write(1, problem.toString());
+        BatchSolver solver = new BatchSolver(1, 10, TimeUnit.SECONDS, dir, 0, SamplingStrategy.uniform, false);
+        solvesAndPasses(solver, problem, 3);
+    }
+}
@@ -0,0 +1,51 @@
+package solver;
+
+import org.junit.Test;
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KdTreeTest {
+
+    @Test
+    public void nearestMatchesLinearScan() {
+        Random r = new Random(42);
+        List<Box> boxes = new ArrayList<>();
+        List<Box> obstacles = new ArrayList<>();
+        for(int i = 0; i < 4; i++) {
+            boxes.add(new MovingBox(new Point2D.Double(r.nextDouble(), r.nextDouble()), 0.05));
+            obstacles.add(new MovingObstacle(new Point2D.Double(r.nextDouble(), r.nextDouble()), 0.1));
+        }
+
+        Vertex root = new Vertex(boxes, obstacles);
+        StoredTree map = new StoredTree(TreeStore.onHeap(root.dimension()), false);
+        KdTree tree = new KdTree(map);
+        map.add(root);
+        tree.insert(root.node);
+        for(int i = 0; i < 2000; i++) {
+            Vertex parent = map.get(r.nextInt(map.size()));
+            Vertex child = parent.newVertexSingleMove(r.nextInt(4),
+                    new MovingBox(new Point2D.Double(r.nextDouble(), r.nextDouble()), 0.05));
+            map.add(child);
+            tree.insert(child.node);
+        }
+        assertEquals(map.size(), tree.size());
+
+        for(int i = 0; i < 200; i++) {
+            Vertex query = map.get(r.nextInt(map.size())).newVertexSingleMove(r.nextInt(4),
+                    new MovingObstacle(new Point2D.Double(r.nextDouble(), r.nextDouble()), 0.1));
+            double best = Double.MAX_VALUE;
+            for(Vertex v : map) {
+                best = Math.min(best, v.distanceTo(query));
+            }
+            assertEquals(best, map.get(tree.nearest(query)).distanceTo(query), 1e-12);
+        }
+    }
+}
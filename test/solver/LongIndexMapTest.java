@@ -0,0 +1,30 @@
+package solver;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongIndexMapTest {
+
+    @Test
+    public void matchesHashMap() {
+        Random r = new Random(3);
+        LongIndexMap map = new LongIndexMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        for(int i = 0; i < 50000; i++) {
+            long key = r.nextInt(20000) * 0x9e3779b97f4a7c15L;
+            int value = r.nextInt(Integer.MAX_VALUE);
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+        for(Map.Entry<Long, Integer> e : expected.entrySet()) {
+            assertEquals((int) e.getValue(), map.get(e.getKey()));
+        }
+        assertEquals(-1, map.get(12345L));
+    }
+}
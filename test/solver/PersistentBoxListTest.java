@@ -0,0 +1,45 @@
+package solver;
+
+import org.junit.Test;
+import problem.Box;
+import problem.MovingBox;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PersistentBoxListTest {
+
+    private static List<Box> boxes(int n) {
+        List<Box> boxes = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            boxes.add(new MovingBox(new Point2D.Double(i * 0.001, 0.0), 0.05));
+        }
+        return boxes;
+    }
+
+    @Test
+    public void withLeavesOriginalUntouched() {
+        for(int n : new int[] {0, 1, 32, 33, 1025}) {
+            List<Box> boxes = boxes(n);
+            PersistentBoxList list = PersistentBoxList.of(boxes);
+            assertEquals(boxes, list);
+            if(n == 0) continue;
+
+            Box moved = new MovingBox(new Point2D.Double(0.5, 0.5), 0.05);
+            PersistentBoxList child = list.with(n - 1, moved);
+            assertSame(moved, child.get(n - 1));
+            assertSame(boxes.get(n - 1), list.get(n - 1));
+            for(int i = 0; i < n - 1; i++) {
+                assertSame(list.get(i), child.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfRange() {
+        PersistentBoxList.of(boxes(3)).get(3);
+    }
+}
@@ -0,0 +1,126 @@
+package solver;
+
+import org.junit.Test;
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+import problem.ProblemSpec;
+import tester.Tester;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PlannerTest {
+    private static final String[] INPUTS = {"input1.txt", "input2.txt", "input3.txt"};
+
+    private static ProblemSpec load(String filename) throws IOException {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem(filename);
+        return ps;
+    }
+
+    /** Grow a roadmap of planner on every input and check its solution */
+    private static void solvesInputs(Planner planner, Duration budget) throws IOException {
+        for(String input : INPUTS) {
+            ProblemSpec ps = load(input);
+            RoadmapCache cache = RoadmapCache.inMemory(ps);
+            Roadmap rm = planner.create(ps, 3, SamplingStrategy.uniform, cache, false);
+            SolveResult result = rm.grow(new CancellationToken(budget));
+            assertTrue(planner + " on " + input + ": " + result, result.solved());
+            checkChain(ps, new RoadmapForBox(ps, 3, SamplingStrategy.uniform, cache), rm.getSolution());
+        }
+    }
+
+    /**
+     * Check that the chain of solution starts where the problem does, moves
+     * one object along one axis per vertex without collisions and leaves
+     * every box on its goal
+     */
+    static void checkChain(ProblemSpec ps, RoadmapForBox geometry, Vertex solution) {
+        List<Vertex> chain = solution.pathFromRoot();
+        Vertex root = chain.get(0);
+        for(int i = 0; i < ps.getMovingBoxes().size(); i++) {
+            assertEquals(ps.getMovingBoxes().get(i).getPos(), root.getMovingBoxes().get(i).getPos());
+        }
+        for(int i = 0; i < ps.getMovingObstacles().size(); i++) {
+            assertEquals(ps.getMovingObstacles().get(i).getPos(), root.getMovingObstacles().get(i).getPos());
+        }
+
+        int numBoxes = ps.getMovingBoxes().size();
+        for(int s = 1; s < chain.size(); s++) {
+            Vertex a = chain.get(s - 1), b = chain.get(s);
+            int moved = -1;
+            for(int d = 0; d < a.dimension(); d++) {
+                if(a.coordinate(d) != b.coordinate(d)) {
+                    assertEquals("step " + s + " moves more than one coordinate", -1, moved);
+                    moved = d;
+                }
+            }
+            if(moved < 0) continue;
+            int k = moved >> 1;
+            boolean collides;
+            if(k < numBoxes) {
+                Box box = b.getMovingBoxes().get(k);
+                collides = geometry.collisionExist(k, a, new MovingBox(box.getPos(), box.getWidth()));
+            } else {
+                Box box = b.getMovingObstacles().get(k - numBoxes);
+                collides = geometry.collisionExist(k - numBoxes, a, new MovingObstacle(box.getPos(), box.getWidth()));
+            }
+            assertFalse("step " + s + " collides", collides);
+        }
+
+        Vertex last = chain.get(chain.size() - 1);
+        for(int i = 0; i < numBoxes; i++) {
+            assertTrue("box " + i + " misses its goal",
+                    last.getMovingBoxes().get(i).getPos().distance(ps.getMovingBoxEndPositions().get(i))
+                            <= Tester.MAX_ERROR);
+        }
+    }
+
+    @Test
+    public void bidirectionalSolvesInputs() throws IOException {
+        solvesInputs(Planner.bidi, Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void anytimeSolvesInputs() throws IOException {
+        // keeps improving until the budget has passed, solved once any solution exists
+        solvesInputs(Planner.anytime, Duration.ofSeconds(2));
+    }
+
+    @Test
+    public void latticeSolvesInputs() throws IOException {
+        solvesInputs(Planner.lattice, Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void latticeExhaustsAWalledInBox() throws IOException, InsertFailedException {
+        // the box can shift a few steps inside four walls but never reach its goal
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem(new StringReader("0.1 0.1 0.1 0.0\n"
+                + "1 0 4\n"
+                + "0.5 0.5 0.2 0.2\n"
+                + "0.37 0.37 0.42 0.63\n"
+                + "0.58 0.37 0.63 0.63\n"
+                + "0.42 0.37 0.58 0.42\n"
+                + "0.42 0.58 0.58 0.63\n"));
+        LatticeRoadmap rm = new LatticeRoadmap(ps);
+        SolveResult result = rm.grow(new CancellationToken(Duration.ofSeconds(30)));
+        assertEquals(SolveResult.Status.exhausted, result.status);
+        assertNull(rm.getSolution());
+        assertTrue(rm.size() > 1);
+        // the closest state still hangs off the start
+        assertEquals(ps.getMovingBoxes().get(0).getPos(),
+                result.vertex.pathFromRoot().get(0).getMovingBoxes().get(0).getPos());
+        try {
+            rm.addNewVertex(rm.newVertex());
+            fail("an exhausted lattice grew");
+        } catch (InsertFailedException e) {
+            // the open set stays empty
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package solver;
+
+import org.junit.Test;
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuantizedKeyTest {
+
+    @Test
+    public void movedHashMatchesRebuiltVertex() {
+        Random r = new Random(11);
+        List<Box> boxes = new ArrayList<>(Arrays.asList(box(0.1, 0.2), box(0.5, 0.5)));
+        List<Box> obstacles = new ArrayList<>(Arrays.asList(
+                (Box) new MovingObstacle(new Point2D.Double(0.7, 0.3), 0.05)));
+        Vertex v = new Vertex(boxes, obstacles);
+        for(int k = 0; k < 200; k++) {
+            double x = r.nextDouble() * 0.9, y = r.nextDouble() * 0.9;
+            if(r.nextBoolean()) {
+                int i = r.nextInt(boxes.size());
+                boxes.set(i, box(x, y));
+                v = v.newVertexSingleMove(i, (MovingBox) boxes.get(i));
+            } else {
+                obstacles.set(0, new MovingObstacle(new Point2D.Double(x, y), 0.05));
+                v = v.newVertexSingleMove(0, (MovingObstacle) obstacles.get(0));
+            }
+            Vertex rebuilt = new Vertex(boxes, obstacles);
+            assertEquals(rebuilt.quantizedHash(), v.quantizedHash());
+            assertTrue(QuantizedKey.sameKey(rebuilt, v));
+        }
+    }
+
+    @Test
+    public void keysEqualWithinQuantum() {
+        double q = QuantizedKey.QUANTUM;
+        Vertex a = new Vertex(Arrays.asList(box(0.3, 0.4)));
+        Vertex near = new Vertex(Arrays.asList(box(0.3 + q / 4, 0.4 - q / 4)));
+        Vertex far = new Vertex(Arrays.asList(box(0.3 + q, 0.4)));
+        assertTrue(QuantizedKey.sameKey(a, near));
+        assertEquals(QuantizedKey.hash(a), QuantizedKey.hash(near));
+        assertFalse(QuantizedKey.sameKey(a, far));
+        assertFalse(QuantizedKey.sameKey(a, new Vertex(Arrays.asList(box(0.3, 0.4), box(0.6, 0.6)))));
+    }
+
+    private static Box box(double x, double y) {
+        return new MovingBox(new Point2D.Double(x, y), 0.05);
+    }
+}
@@ -0,0 +1,63 @@
+package solver;
+
+import org.junit.Test;
+import problem.ProblemSpec;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class RoadmapCacheTest {
+
+    @Test
+    public void savedStructuresLoadUnchanged() throws Exception {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem("input1.txt");
+        Path dir = Files.createTempDirectory("rmc");
+
+        RoadmapCache cold = RoadmapCache.open(dir, ps);
+        StaticRaster raster = cold.raster(ps.getRobotWidth());
+        StaticLattice lattice = cold.lattice();
+        cold.save();
+
+        RoadmapCache warm = RoadmapCache.open(dir, ps);
+        assertArrayEquals(raster.getBits(), warm.raster(ps.getRobotWidth()).getBits());
+        long[][] expected = lattice.getBits();
+        long[][] loaded = warm.lattice().getBits();
+        for(int k = 0; k < expected.length; k++) {
+            assertArrayEquals(expected[k], loaded[k]);
+        }
+        assertFalse(warm.hasUnsavedChanges());
+    }
+
+    @Test
+    public void damagedFilesAreMisses() throws Exception {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem("input1.txt");
+        Path dir = Files.createTempDirectory("rmc");
+        RoadmapCache cold = RoadmapCache.open(dir, ps);
+        long[] bits = cold.raster(ps.getRobotWidth()).getBits();
+        cold.lattice();
+        cold.save();
+        Path file;
+        try(Stream<Path> files = Files.list(dir)) {
+            file = files.findFirst().get();
+        }
+        byte[] saved = Files.readAllBytes(file);
+
+        for(int length : new int[]{10, 24, 40, saved.length / 2, saved.length - 1}) {
+            Files.write(file, Arrays.copyOf(saved, length));
+            RoadmapCache warm = RoadmapCache.open(dir, ps);
+            assertArrayEquals(bits, warm.raster(ps.getRobotWidth()).getBits());
+            assertTrue(warm.hasUnsavedChanges());
+        }
+        // a section claiming more words than the file holds
+        byte[] corrupt = saved.clone();
+        corrupt[20 + 8 + 12] = 0x7f;
+        Files.write(file, corrupt);
+        assertArrayEquals(bits, RoadmapCache.open(dir, ps).raster(ps.getRobotWidth()).getBits());
+    }
+}
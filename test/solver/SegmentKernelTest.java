@@ -0,0 +1,71 @@
+package solver;
+
+import org.junit.Test;
+import problem.ProblemSpec;
+import tester.Tester;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentKernelTest {
+    private static final Tester TESTER = new Tester(new ProblemSpec());
+
+    /** Coordinates on a coarse grid so that segments often touch edges exactly */
+    private static double coordinate(Random r) {
+        return r.nextInt(4) == 0 ? r.nextInt(21) * 0.05 : r.nextDouble();
+    }
+
+    @Test
+    public void intersectsLineMatchesTester() {
+        Random r = new Random(3);
+        double[] rects = new double[4];
+        for(int i = 0; i < 200000; i++) {
+            double w = r.nextInt(8) == 0 ? r.nextDouble() * 2 * SegmentKernel.MAX_ERROR : r.nextDouble() * 0.3;
+            Rectangle2D rect = new Rectangle2D.Double(coordinate(r), coordinate(r), w, r.nextDouble() * 0.3);
+            SegmentKernel.set(rects, 0, rect);
+            double x1 = coordinate(r), y1 = coordinate(r);
+            double x2 = r.nextBoolean() ? x1 : coordinate(r), y2 = r.nextBoolean() ? y1 : coordinate(r);
+            for(double delta : new double[]{SegmentKernel.MAX_ERROR, -SegmentKernel.MAX_ERROR, 0}) {
+                boolean expected = TESTER.grow(rect, delta).intersectsLine(new Line2D.Double(x1, y1, x2, y2));
+                assertEquals(expected, SegmentKernel.intersectsLine(rects, 0, delta, x1, y1, x2, y2));
+            }
+        }
+    }
+
+    @Test
+    public void sweepsCoverEveryConfigurationOnTheWay() {
+        Random r = new Random(5);
+        double[] rects = new double[4];
+        double width = 0.05;
+        int misses = 0;
+        for(int i = 0; i < 20000; i++) {
+            SegmentKernel.set(rects, 0, new Rectangle2D.Double(r.nextDouble() * 0.2, r.nextDouble() * 0.2,
+                    r.nextDouble() * 0.05, r.nextDouble() * 0.05));
+            double x = r.nextDouble() * 0.2, y = r.nextDouble() * 0.2, angle = r.nextDouble() * 2 * Math.PI;
+            double dx = (r.nextDouble() - 0.5) * 0.1, dy = (r.nextDouble() - 0.5) * 0.1;
+            double turn = (r.nextDouble() - 0.5) * 4;
+            boolean translation = SegmentKernel.translationHits(rects, 0, SegmentKernel.MAX_ERROR,
+                    x - Math.cos(angle) * width * 0.5, y - Math.sin(angle) * width * 0.5,
+                    x + Math.cos(angle) * width * 0.5, y + Math.sin(angle) * width * 0.5, dx, dy);
+            boolean rotation = SegmentKernel.rotationHits(rects, 0, SegmentKernel.MAX_ERROR, x, y, width,
+                    angle, angle + turn);
+            for(int s = 0; s <= 64; s++) {
+                double t = s / 64.0;
+                if(SegmentKernel.configHits(rects, 1, SegmentKernel.MAX_ERROR, x + t * dx, y + t * dy, angle,
+                        width)) {
+                    assertTrue(translation);
+                }
+                if(SegmentKernel.configHits(rects, 1, SegmentKernel.MAX_ERROR, x, y, angle + t * turn, width)) {
+                    assertTrue(rotation);
+                }
+            }
+            if(!translation || !rotation) {
+                misses++;
+            }
+        }
+        assertTrue(misses > 0);
+    }
+}
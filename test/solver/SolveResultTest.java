@@ -0,0 +1,68 @@
+package solver;
+
+import org.junit.Test;
+import problem.ProblemSpec;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class SolveResultTest {
+
+    private static ProblemSpec load(String filename) throws IOException {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem(filename);
+        return ps;
+    }
+
+    @Test
+    public void solvesWithinBudget() throws Exception {
+        RoadmapForBox rm = new RoadmapForBox(load("input1.txt"), 3);
+        SolveResult result = rm.solve(Duration.ofSeconds(30)).get();
+        assertTrue(result.solved());
+        assertSame(rm.getSolution(), result.vertex);
+    }
+
+    @Test
+    public void expiredBudgetReturnsClosestVertex() throws Exception {
+        RoadmapForBox rm = new RoadmapForBox(load("input1.txt"), 3);
+        SolveResult result = rm.solve(Duration.ZERO).get();
+        assertEquals(SolveResult.Status.timeout, result.status);
+        assertEquals(0, result.iterations);
+        assertNotNull(result.vertex);
+        assertNull(result.vertex.getParent());
+    }
+
+    @Test
+    public void budgetPassesFromTheStartOfTheSolve() throws Exception {
+        CancellationToken token = CancellationToken.notStarted(Duration.ofMillis(50));
+        Thread.sleep(100);
+        assertFalse(token.stopRequested());
+        token.start();
+        assertFalse(token.stopRequested());
+        Thread.sleep(100);
+        assertTrue(token.isExpired());
+    }
+
+    @Test
+    public void cancelledTokenStopsTheSolve() throws Exception {
+        RoadmapForBox rm = new RoadmapForBox(load("input1.txt"), 3);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        SolveResult result = rm.grow(token);
+        assertEquals(SolveResult.Status.cancelled, result.status);
+        assertSame(CancellationToken.NONE, rm.token);
+    }
+
+    @Test
+    public void cancellingTheFutureCancelsTheToken() throws Exception {
+        RoadmapForBox rm = new RoadmapForBox(load("input1.txt"), 3);
+        CancellationToken token = new CancellationToken();
+        CompletableFuture<SolveResult> future = rm.solve(token);
+        if(future.cancel(true)) {
+            assertTrue(token.isCancelled());
+        }
+    }
+}
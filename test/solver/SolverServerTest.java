@@ -0,0 +1,65 @@
+package solver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class SolverServerTest {
+    private SolverServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new SolverServer(new InetSocketAddress("127.0.0.1", 0), 1, 1, Duration.ofSeconds(30),
+                SamplingStrategy.uniform);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private HttpURLConnection post(byte[] body) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/solve?seed=3");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try(OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection;
+    }
+
+    @Test
+    public void solvesPostedProblem() throws IOException {
+        HttpURLConnection connection = post(Files.readAllBytes(Paths.get("input1.txt")));
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("solved", connection.getHeaderField("X-Solve-Status"));
+        try(BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII))) {
+            long steps = Long.parseLong(reader.readLine().trim());
+            long lines = reader.lines().count();
+            assertEquals(steps, lines);
+        }
+    }
+
+    @Test
+    public void rejectsMalformedProblem() throws IOException {
+        HttpURLConnection connection = post("0.05 0.1 0.5 0.0\n2 x 1\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(400, connection.getResponseCode());
+    }
+}
@@ -0,0 +1,42 @@
+package solver;
+
+import org.junit.Test;
+import problem.StaticObstacle;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StaticRasterTest {
+
+    @Test
+    public void blockedPlacementsAlwaysCollide() {
+        Random r = new Random(7);
+        List<StaticObstacle> obstacles = new ArrayList<>();
+        for(int i = 0; i < 6; i++) {
+            obstacles.add(new StaticObstacle(r.nextDouble() * 0.8, r.nextDouble() * 0.8,
+                    0.05 + r.nextDouble() * 0.2, 0.05 + r.nextDouble() * 0.2));
+        }
+        double width = 0.04;
+        StaticRaster raster = new StaticRaster(obstacles, width, 128);
+
+        int blocked = 0;
+        for(int i = 0; i < 100000; i++) {
+            double x = r.nextDouble() * (1 - width);
+            double y = r.nextDouble() * (1 - width);
+            if(raster.isBlocked(x, y)) {
+                blocked++;
+                Rectangle2D box = new Rectangle2D.Double(x, y, width, width);
+                boolean collides = false;
+                for(StaticObstacle obstacle : obstacles) {
+                    collides |= obstacle.getRect().intersects(box);
+                }
+                assertTrue(collides);
+            }
+        }
+        assertTrue(blocked > 0);
+    }
+}
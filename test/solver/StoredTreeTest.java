@@ -0,0 +1,81 @@
+package solver;
+
+import org.junit.Test;
+import problem.Box;
+import problem.MovingBox;
+import problem.MovingObstacle;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StoredTreeTest {
+
+    @Test
+    public void rebuiltVerticesMatchTheAddedOnes() {
+        // with and without rows of whole configurations
+        for(int objects : new int[]{3, 9}) {
+            checkRebuilds(TreeStore.onHeap(4 * objects), objects);
+            checkRebuilds(TreeStore.direct(4 * objects), objects);
+        }
+    }
+
+    private static void checkRebuilds(TreeStore store, int objects) {
+        Random r = new Random(7);
+        List<Box> boxes = new ArrayList<>();
+        List<Box> obstacles = new ArrayList<>();
+        for(int i = 0; i < objects; i++) {
+            boxes.add(new MovingBox(new Point2D.Double(r.nextDouble(), r.nextDouble()), 0.05));
+            obstacles.add(new MovingObstacle(new Point2D.Double(r.nextDouble(), r.nextDouble()), 0.1));
+        }
+        Vertex goal = new Vertex(boxes);
+        Vertex root = new Vertex(boxes, obstacles);
+        root.heuristic(goal);
+
+        // more nodes than the cache holds, so most gets rebuild
+        StoredTree tree = new StoredTree(store, false);
+        List<Vertex> added = new ArrayList<>();
+        tree.add(root);
+        added.add(root);
+        for(int i = 0; i < 3 * StoredTree.CACHE; i++) {
+            Vertex parent = added.get(r.nextInt(added.size()));
+            int index = r.nextInt(objects);
+            Point2D pos = new Point2D.Double(r.nextDouble(), r.nextDouble());
+            Vertex child = r.nextBoolean()
+                    ? parent.newVertexSingleMove(index, new MovingBox(pos, 0.05))
+                    : parent.newVertexSingleMove(index, new MovingObstacle(pos, 0.1));
+            child.setParent(tree.get(parent.node));
+            tree.add(child);
+            added.add(child);
+        }
+
+        double[] query = new double[root.dimension()];
+        for(int i = 0; i < 500; i++) {
+            int node = r.nextInt(added.size());
+            Vertex expected = added.get(node);
+            assertEquals(expected.getMovingBoxes().get(1), tree.object(node, true, 1));
+            assertEquals(expected.getMovingObstacles().get(2), tree.object(node, false, 2));
+
+            Vertex v = tree.get(node);
+            assertTrue(v.sameNode(expected));
+            assertEquals(0.0, v.distanceTo(expected), 0.0);
+            assertEquals(expected.getCost(), v.getCost(), 0.0);
+            assertEquals(expected.quantizedHash(), v.quantizedHash());
+            assertEquals(expected.heuristic(goal), v.heuristic(goal), 1e-12);
+            assertEquals(tree.parentNode(node), node == 0 ? -1 : v.getParent().node);
+
+            for(int d = 0; d < query.length; d++) {
+                query[d] = r.nextDouble();
+            }
+            tree.query(query);
+            double dist = 0.0;
+            for(int d = 0; d < query.length; d++) {
+                dist += (expected.coordinate(d) - query[d]) * (expected.coordinate(d) - query[d]);
+            }
+            assertEquals(dist, tree.squaredDistance(node, query), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package tester;
+
+import org.junit.Test;
+import problem.Box;
+import problem.MovingBox;
+import problem.ProblemSpec;
+import problem.RobotConfig;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TesterTest {
+    /** Robot of width 0.1, one box under a goal and two moving obstacles */
+    private static final String PROBLEM = "0.1 0.5 0.2 0.0\n"
+            + "1 2 0\n"
+            + "0.5 0.35 0.5 0.6\n"
+            + "0.2 0.8 0.1\n"
+            + "0.8 0.8 0.1\n";
+
+    private static ProblemSpec load(String... solution) throws IOException {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem(new StringReader(PROBLEM));
+        if(solution.length > 0) {
+            Path file = Files.createTempFile("solution", ".txt");
+            try {
+                StringBuilder text = new StringBuilder().append(solution.length).append('\n');
+                for(String line : solution) {
+                    text.append(line).append('\n');
+                }
+                Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+                ps.loadSolution(file.toString());
+            } finally {
+                Files.delete(file);
+            }
+        }
+        return ps;
+    }
+
+    private static RobotConfig robot(double x, double y, double angle) {
+        return new RobotConfig(new Point2D.Double(x, y), angle);
+    }
+
+    private static Box box(double x, double y) {
+        return new MovingBox(new Point2D.Double(x, y), 0.1);
+    }
+
+    @Test
+    public void coupledInEveryAlignedOrientation() throws IOException {
+        Tester tester = new Tester(load());
+        Box b = box(0.45, 0.3);
+        // under the box, either end of the robot first
+        assertEquals(1, tester.isCoupled(robot(0.5, 0.3, 0), b));
+        assertEquals(1, tester.isCoupled(robot(0.5, 0.3, Math.PI), b));
+        // left of the box
+        assertEquals(2, tester.isCoupled(robot(0.45, 0.35, Math.PI / 2), b));
+        assertEquals(2, tester.isCoupled(robot(0.45, 0.35, -Math.PI / 2), b));
+        // right of and above the box
+        assertEquals(4, tester.isCoupled(robot(0.55, 0.35, Math.PI / 2), b));
+        assertEquals(3, tester.isCoupled(robot(0.5, 0.4, 0), b));
+        assertEquals(-1, tester.isCoupled(robot(0.5, 0.3, Math.PI / 4), b));
+    }
+
+    @Test
+    public void pushesAlongEitherAxisAreValid() throws IOException {
+        Tester tester = new Tester(load());
+        double d = 0.001;
+        assertTrue(tester.testPushValidity(1, robot(0.5, 0.3, 0), robot(0.5, 0.3 + d, 0),
+                box(0.45, 0.3), box(0.45, 0.3 + d)));
+        assertTrue(tester.testPushValidity(2, robot(0.45, 0.35, Math.PI / 2), robot(0.45 + d, 0.35, Math.PI / 2),
+                box(0.45, 0.3), box(0.45 + d, 0.3)));
+        assertTrue(tester.testPushValidity(3, robot(0.5, 0.4, 0), robot(0.5, 0.4 - d, 0),
+                box(0.45, 0.3), box(0.45, 0.3 - d)));
+        assertTrue(tester.testPushValidity(4, robot(0.55, 0.35, Math.PI / 2), robot(0.55 - d, 0.35, Math.PI / 2),
+                box(0.45, 0.3), box(0.45 - d, 0.3)));
+        // pushed the other way than the robot stands
+        assertFalse(tester.testPushValidity(2, robot(0.45, 0.35, Math.PI / 2), robot(0.45 - d, 0.35, Math.PI / 2),
+                box(0.45, 0.3), box(0.45 - d, 0.3)));
+    }
+
+    @Test
+    public void gapSlidingIsCaughtForVerticalRobots() throws IOException {
+        Tester tester = new Tester(load());
+        // flush between two boxes
+        assertFalse(tester.testGapSliding(robot(0.5, 0.3, Math.PI / 2), Arrays.asList(box(0.4, 0.25), box(0.5, 0.25))));
+        assertFalse(tester.testGapSliding(robot(0.5, 0.3, -Math.PI / 2), Arrays.asList(box(0.4, 0.25), box(0.5, 0.25))));
+        // touching only one of them
+        assertTrue(tester.testGapSliding(robot(0.5, 0.3, Math.PI / 2), Arrays.asList(box(0.4, 0.25), box(0.6, 0.25))));
+    }
+
+    @Test
+    public void initialStateWithSeveralMovingObstacles() throws IOException {
+        assertTrue(new Tester(load("0.5 0.2 0.0 0.5 0.35 0.2 0.8 0.8 0.8")).testInitialFirst());
+        assertFalse(new Tester(load("0.5 0.2 0.0 0.5 0.35 0.8 0.8 0.2 0.8")).testInitialFirst());
+    }
+
+    @Test
+    public void goalsReachedWithinMaxError() throws IOException {
+        assertEquals(1, new Tester(load("0.5 0.2 0.0 0.5 0.35 0.2 0.8 0.8 0.8",
+                "0.5 0.45 0.0 0.50005 0.6 0.2 0.8 0.8 0.8")).countGoals());
+        assertEquals(0, new Tester(load("0.5 0.2 0.0 0.5 0.35 0.2 0.8 0.8 0.8",
+                "0.5 0.45 0.0 0.5 0.59 0.2 0.8 0.8 0.8")).countGoals());
+    }
+}